@@ -1,18 +1,45 @@
 package com.rayen.miniprojet.agents;
 
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import com.rayen.miniprojet.config.RagConfig;
+import com.rayen.miniprojet.rag.ContextPacker;
+import com.rayen.miniprojet.rag.CorpusRegistry;
+import com.rayen.miniprojet.rag.CorpusSnapshot;
+import com.rayen.miniprojet.rag.HybridRetriever;
+import com.rayen.miniprojet.services.AdmissionRejectedException;
+import com.rayen.miniprojet.services.AnswerCache;
+import com.rayen.miniprojet.services.ChatMetrics;
+import com.rayen.miniprojet.services.LlmAdmissionScheduler;
+import com.rayen.miniprojet.services.RequestCoalescer;
 import com.rayen.miniprojet.tools.StockTools;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @RequiredArgsConstructor
@@ -20,35 +47,75 @@ import java.util.List;
 public class AIAgent {
     private final ChatClient.Builder builder;
     private final StockTools stockTools;
-    private final VectorStore vectorStore;
+    private final HybridRetriever hybridRetriever;
+    private final ContextPacker contextPacker;
+    private final CorpusRegistry corpusRegistry;
+    private final ChatMetrics chatMetrics;
+    private final AnswerCache answerCache;
+    private final MeterRegistry meterRegistry;
+    private final LlmAdmissionScheduler admissionScheduler;
+    private final StockFastPath stockFastPath;
+    private final QueryRouter queryRouter;
+    private final RequestCoalescer requestCoalescer;
+    private final EmbeddingModel embeddingModel;
     private ChatClient chatClient;
+    // Attentes longues (place auprès du modèle) : un thread virtuel par attente, pas un thread boundedElastic
+    private final Scheduler virtualThreads = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "chat-virtual");
+    // System prompt du dernier corpus vu (reconstruit quand une nouvelle génération est publiée)
+    private volatile SystemPrompt systemPrompt;
     
     private static final int SMALL_DOCUMENT_THRESHOLD = 10000;
+    
+    // Questions d'un lot traitées en parallèle (recherche + génération)
+    @Value("${chat.batch.concurrency:4}")
+    private int batchConcurrency;
+    
+    @Value("${chat.batch.max-questions:500}")
+    private int batchMaxQuestions;
+    
+    // Délai global d'un lot : les questions encore sans réponse sont rendues en erreur
+    @Value("${chat.batch.timeout-seconds:3600}")
+    private long batchTimeoutSeconds;
 
     @PostConstruct
     public void init() {
         log.info("🤖 Initialisation de l'AIAgent UNIVERSEL avec RAG Hybride");
         
-        String fullText = RagConfig.getFullDocumentText();
-        boolean isSmallDocument = fullText.length() < SMALL_DOCUMENT_THRESHOLD;
+        // Le corpus est ingéré en arrière-plan : le system prompt est choisi à chaque question
+        // selon l'instantané courant (document complet si petit, sinon RAG hybride)
+        this.chatClient = builder
+            .defaultFunctions("getProductInfo", "getLowStockProducts")
+            .build();
         
+        log.info("✅ AIAgent UNIVERSEL initialisé avec succès");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        virtualThreads.dispose();
+    }
+
+    /**
+     * System prompt adapté à un instantané du corpus : document complet inclus s'il est petit
+     */
+    private SystemPrompt systemPromptFor(CorpusSnapshot corpus) {
+        SystemPrompt cached = systemPrompt;
+        if (cached != null && cached.corpus().generation() == corpus.generation()) {
+            return cached;
+        }
+        
+        String fullText = corpus.fullText();
+        boolean isSmallDocument = !fullText.isEmpty() && fullText.length() < SMALL_DOCUMENT_THRESHOLD;
         if (isSmallDocument) {
             log.info("📄 Document petit ({} caractères) - Mode contexte complet activé", fullText.length());
-            
-            this.chatClient = builder
-                .defaultSystem(buildIntelligentSystemPrompt(fullText))
-                .defaultFunctions("getProductInfo", "getLowStockProducts")
-                .build();
         } else {
             log.info("📚 Document volumineux ({} caractères) - Mode RAG hybride activé", fullText.length());
-            
-            this.chatClient = builder
-                .defaultSystem(buildIntelligentSystemPrompt(null))
-                .defaultFunctions("getProductInfo", "getLowStockProducts")
-                .build();
         }
-        
-        log.info("✅ AIAgent UNIVERSEL initialisé avec succès");
+        SystemPrompt next = new SystemPrompt(corpus,
+            buildIntelligentSystemPrompt(isSmallDocument ? fullText : null), isSmallDocument);
+        systemPrompt = next;
+        return next;
     }
 
     /**
@@ -165,175 +232,444 @@ public class AIAgent {
     }
 
     public String chat(String userQuery) {
+        long start = System.nanoTime();
         log.info("💬 Question reçue : {}", userQuery);
+        String queryType = "UNKNOWN";
         
         try {
-            // Détecter si c'est une question CSV, Stock, ou Document
-            String queryType = detectQueryType(userQuery);
-            log.info("🎯 Type de question détecté : {}", queryType);
-            
-            String response;
+            // Détecter si c'est une question CSV, Stock, ou Document (+ produits cités)
+            QueryRouter.Route route = queryRouter.route(userQuery);
+            queryType = route.type();
+            chatMetrics.recordStage("routing", queryType, System.nanoTime() - start);
+            log.info("🎯 Type de question détecté : {} {}", queryType, route.skus());
             
-            if ("CSV".equals(queryType)) {
-                // Question CSV : le contexte est déjà dans userQuery
-                log.info("📊 Question CSV détectée - Pas besoin d'ajouter le document PDF");
-                response = chatClient.prompt()
-                        .user(userQuery)
-                        .call()
-                        .content();
-                        
-            } else if ("STOCK".equals(queryType)) {
-                // Question Stock : forcer l'appel des fonctions
-                log.info("🗄️ Question STOCK détectée - Les fonctions doivent être appelées");
-                response = chatClient.prompt()
-                        .user(userQuery + "\n\n⚠️ RAPPEL : Cette question concerne la base de données. Utilise les fonctions disponibles.")
-                        .call()
-                        .content();
-                        
-            } else {
-                // Question Document : ajouter le contexte si nécessaire
-                log.info("📄 Question DOCUMENT détectée");
-                
-                if (RagConfig.getFullDocumentText().length() < SMALL_DOCUMENT_THRESHOLD) {
-                    // Document déjà dans le system prompt
-                    response = chatClient.prompt()
-                            .user(userQuery)
-                            .call()
-                            .content();
-                } else {
-                    // Document volumineux, ajouter le contexte
-                    String context = getRelevantContext(userQuery);
-                    String enrichedQuery = """
-                        CONTEXTE DU DOCUMENT :
-                        """ + context + """
-                        
-                        QUESTION :
-                        """ + userQuery;
-                    
-                    response = chatClient.prompt()
-                            .user(enrichedQuery)
-                            .call()
-                            .content();
+            // Lecture de stock entièrement résolue : réponse directe, sans LLM
+            if ("STOCK".equals(queryType)) {
+                Optional<String> direct = chatMetrics.stage("fast_path", queryType,
+                        () -> stockFastPath.tryAnswer(userQuery, route));
+                if (direct.isPresent()) {
+                    chatMetrics.recordRequest(queryType, "fast_path", start);
+                    return direct.get();
                 }
             }
             
-            log.info("✅ Réponse générée ({} caractères)", response.length());
-            return response;
+            // Même question déjà en cours : on attend son résultat au lieu de relancer le modèle
+            String type = queryType;
+            RequestCoalescer.Shared<String> shared = requestCoalescer.call(queryType, userQuery,
+                    () -> answer(userQuery, type, start, null));
+            if (shared.follower()) {
+                chatMetrics.recordRequest(queryType, "coalesced", start);
+            }
+            return shared.value();
             
+        } catch (AdmissionRejectedException e) {
+            chatMetrics.recordRequest(queryType, "rejected", start);
+            throw e;
         } catch (Exception e) {
             log.error("❌ Erreur lors du traitement de la requête", e);
+            chatMetrics.recordError(queryType, e);
+            chatMetrics.recordRequest(queryType, "error", start);
             return "Désolé, une erreur s'est produite : " + e.getMessage();
         }
     }
     
     /**
-     * Détecte le type de question pour router correctement
+     * Cache, contexte puis appel au modèle (calcul partagé par les questions identiques simultanées) ;
+     * queryEmbedding : embedding de la question déjà calculé, ou null
      */
-    private String detectQueryType(String query) {
-        String lower = query.toLowerCase();
+    private String answer(String userQuery, String queryType, long start, float[] queryEmbedding) {
+        // Réponse déjà générée pour la même question (ou une question équivalente) ?
+        AnswerCache.Lookup cached = chatMetrics.stage("cache", queryType,
+                () -> answerCache.lookup(userQuery, queryType, queryEmbedding));
+        if (cached.hit()) {
+            chatMetrics.recordRequest(queryType, "cache", start);
+            return cached.answer();
+        }
         
-        // CSV : détection prioritaire (si le contexte contient "uploadé un fichier CSV")
-        if (lower.contains("contexte : l'utilisateur a uploadé un fichier csv") ||
-            lower.contains("données csv") ||
-            (lower.contains("région") && (lower.contains("nord") || lower.contains("sud") || lower.contains("est") || lower.contains("ouest")))) {
-            return "CSV";
+        // Un seul instantané du corpus pour le system prompt et le contexte ;
+        // l'embedding calculé par le cache sémantique sert aussi à la recherche vectorielle
+        SystemPrompt system = systemPromptFor(corpusRegistry.current());
+        String prompt = chatMetrics.stage("context", queryType,
+                () -> buildUserPrompt(userQuery, queryType, system,
+                        cached.embedding() != null ? cached.embedding() : queryEmbedding));
+        
+        // Une place auprès du modèle est réservée uniquement pendant la génération
+        ChatResponse chatResponse;
+        try (LlmAdmissionScheduler.Permit permit = admissionScheduler.acquire(queryType)) {
+            chatResponse = chatMetrics.stage("llm", queryType, () -> chatClient.prompt()
+                    .system(system.text())
+                    .user(prompt)
+                    .call()
+                    .chatResponse());
         }
+        String response = chatResponse.getResult().getOutput().getContent();
+        chatMetrics.recordUsage(queryType, chatResponse.getMetadata().getUsage());
         
-        // Stock : mots-clés de la base de données
-        if (lower.contains("stock actuel") || 
-            lower.contains("prix") || 
-            lower.contains("coûte") ||
-            lower.contains("disponible") ||
-            lower.contains("rupture") ||
-            lower.contains("quantité en stock") ||
-            lower.contains("liste les produits") ||
-            lower.contains("playstation") ||
-            lower.contains("iphone") ||
-            lower.contains("dell") ||
-            lower.contains("produit")) {
-            return "STOCK";
+        log.info("✅ Réponse générée ({} caractères)", response.length());
+        answerCache.store(cached, queryType, response);
+        chatMetrics.recordRequest(queryType, "llm", start);
+        return response;
+    }
+    
+    /**
+     * Variante streaming de {@link #chat} : même routage et même contexte, mais les tokens
+     * sont émis au fil de la génération. Le routage et la recherche s'exécutent hors du
+     * thread de la requête, les premiers tokens arrivent dès que le contexte est prêt.
+     */
+    public Flux<String> chatStream(String userQuery) {
+        long start = System.nanoTime();
+        log.info("💬 Question reçue (streaming) : {}", userQuery);
+        AtomicReference<String> routed = new AtomicReference<>("UNKNOWN");
+        
+        return Mono.fromCallable(() -> {
+                    QueryRouter.Route route = queryRouter.route(userQuery);
+                    String queryType = route.type();
+                    routed.set(queryType);
+                    chatMetrics.recordStage("routing", queryType, System.nanoTime() - start);
+                    log.info("🎯 Type de question détecté : {} {}", queryType, route.skus());
+                    Optional<String> direct = "STOCK".equals(queryType)
+                            ? chatMetrics.stage("fast_path", queryType, () -> stockFastPath.tryAnswer(userQuery, route))
+                            : Optional.empty();
+                    return new Routed(queryType, direct.orElse(null));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(routing -> {
+                    if (routing.direct() != null) {
+                        recordTimeToFirstToken(routing.queryType(), start);
+                        chatMetrics.recordRequest(routing.queryType(), "fast_path", start);
+                        return Flux.just(routing.direct());
+                    }
+                    // Même question déjà en cours : le flux est partagé (tokens déjà émis rejoués)
+                    return requestCoalescer.stream(routing.queryType(), userQuery,
+                                    () -> answerStream(userQuery, routing.queryType(), start))
+                            .flatMapMany(shared -> {
+                                if (!shared.follower()) {
+                                    return shared.value();
+                                }
+                                AtomicBoolean firstToken = new AtomicBoolean(true);
+                                return shared.value()
+                                        .doOnNext(token -> {
+                                            if (firstToken.compareAndSet(true, false)) {
+                                                recordTimeToFirstToken(routing.queryType(), start);
+                                            }
+                                        })
+                                        .doOnComplete(() -> chatMetrics.recordRequest(routing.queryType(), "coalesced", start));
+                            });
+                })
+                .doOnError(AdmissionRejectedException.class, e -> chatMetrics.recordRequest(routed.get(), "rejected", start))
+                .onErrorResume(e -> !(e instanceof AdmissionRejectedException), e -> {
+                    log.error("❌ Erreur lors du traitement de la requête (streaming)", e);
+                    chatMetrics.recordError(routed.get(), e);
+                    chatMetrics.recordRequest(routed.get(), "error", start);
+                    return Flux.just("Désolé, une erreur s'est produite : " + e.getMessage());
+                });
+    }
+    
+    /**
+     * Cache, contexte (hors du thread de la requête) puis génération streamée
+     */
+    private Flux<String> answerStream(String userQuery, String queryType, long start) {
+        return Mono.fromCallable(() -> {
+                    AnswerCache.Lookup cached = chatMetrics.stage("cache", queryType,
+                            () -> answerCache.lookup(userQuery, queryType));
+                    if (cached.hit()) {
+                        return new PreparedPrompt(cached, null, null);
+                    }
+                    SystemPrompt system = systemPromptFor(corpusRegistry.current());
+                    String prompt = chatMetrics.stage("context", queryType,
+                            () -> buildUserPrompt(userQuery, queryType, system, cached.embedding()));
+                    return new PreparedPrompt(cached, system.text(), prompt);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(prepared -> {
+                    if (prepared.cached().hit()) {
+                        recordTimeToFirstToken(queryType, start);
+                        chatMetrics.recordRequest(queryType, "cache", start);
+                        return Flux.just(prepared.cached().answer());
+                    }
+                    
+                    StringBuilder fullResponse = new StringBuilder();
+                    AtomicBoolean firstToken = new AtomicBoolean(true);
+                    AtomicReference<Usage> usage = new AtomicReference<>();
+                    AtomicLong llmStart = new AtomicLong();
+                    // La place auprès du modèle est rendue à la fin (ou à l'annulation) du flux ;
+                    // l'acquisition, bloquante jusqu'à llm.admission.max-wait-seconds, attend sur un thread virtuel
+                    return Flux.using(
+                            () -> admissionScheduler.acquire(queryType),
+                            permit -> chatClient.prompt()
+                                    .system(prepared.system())
+                                    .user(prepared.prompt())
+                                    .stream()
+                                    .chatResponse()
+                                    .doOnSubscribe(subscription -> llmStart.set(System.nanoTime()))
+                                    .doOnNext(chunk -> {
+                                        // Le dernier fragment porte le décompte de tokens
+                                        if (chunk.getMetadata() != null && chunk.getMetadata().getUsage() != null) {
+                                            usage.set(chunk.getMetadata().getUsage());
+                                        }
+                                    })
+                                    .mapNotNull(AIAgent::textOf)
+                                    .doOnNext(token -> {
+                                        if (firstToken.compareAndSet(true, false)) {
+                                            recordTimeToFirstToken(queryType, start);
+                                        }
+                                        fullResponse.append(token);
+                                    })
+                                    .doOnComplete(() -> {
+                                        log.info("✅ Réponse streamée ({} caractères)", fullResponse.length());
+                                        chatMetrics.recordStage("llm", queryType, System.nanoTime() - llmStart.get());
+                                        chatMetrics.recordUsage(queryType, usage.get());
+                                        chatMetrics.recordRequest(queryType, "llm", start);
+                                        answerCache.store(prepared.cached(), queryType, fullResponse.toString());
+                                    }),
+                            LlmAdmissionScheduler.Permit::close)
+                            .subscribeOn(virtualThreads);
+                });
+    }
+    
+    /**
+     * Lot de questions : routage en une passe, embeddings des questions DOCUMENT en un seul appel,
+     * puis recherche et génération en parallèle (au plus chat.batch.concurrency à la fois).
+     * Chaque réponse est émise dès qu'elle est prête, dans l'ordre d'achèvement ; passé
+     * chat.batch.timeout-seconds, les questions restantes reçoivent une ligne d'erreur.
+     */
+    public Flux<BatchAnswer> chatBatch(List<String> questions) {
+        if (questions == null || questions.isEmpty()) {
+            throw new IllegalArgumentException("Le lot de questions est vide");
+        }
+        if (questions.size() > batchMaxQuestions) {
+            throw new IllegalArgumentException("Lot limité à " + batchMaxQuestions + " questions (reçu : " + questions.size() + ")");
         }
+        for (int i = 0; i < questions.size(); i++) {
+            if (questions.get(i) == null || questions.get(i).isBlank()) {
+                throw new IllegalArgumentException("Question vide à l'index " + i);
+            }
+        }
+        long start = System.nanoTime();
+        log.info("📦 Lot de {} questions reçu", questions.size());
         
-        // Document : par défaut
-        return "DOCUMENT";
+        // Appels bloquants (embedding, attente d'admission, génération) sur des threads virtuels
+        Set<Integer> answered = ConcurrentHashMap.newKeySet();
+        return Mono.fromCallable(() -> planBatch(questions))
+                .subscribeOn(virtualThreads)
+                .flatMapMany(plan -> Flux.range(0, questions.size())
+                        .flatMap(i -> Mono.fromCallable(() ->
+                                        answerInBatch(i, questions.get(i), plan.routes().get(i), plan.embeddings()[i]))
+                                .subscribeOn(virtualThreads), batchConcurrency))
+                .take(Duration.ofSeconds(batchTimeoutSeconds))
+                .doOnNext(answer -> answered.add(answer.index()))
+                .concatWith(Flux.defer(() -> expired(questions, answered, start)))
+                .doOnComplete(() -> log.info("✅ Lot de {} questions traité en {} ms",
+                        questions.size(), (System.nanoTime() - start) / 1_000_000));
     }
     
-    private String getRelevantContext(String query) {
-        log.info("🔍 Recherche de contexte pertinent pour : {}", query);
+    // Questions sans réponse à l'expiration du délai du lot (vide si tout a été traité)
+    private Flux<BatchAnswer> expired(List<String> questions, Set<Integer> answered, long start) {
+        if (answered.size() == questions.size()) {
+            return Flux.empty();
+        }
+        double millis = (System.nanoTime() - start) / 1e6;
+        log.warn("⏱️ Délai du lot dépassé ({} s) : {} questions sans réponse",
+                batchTimeoutSeconds, questions.size() - answered.size());
+        return Flux.range(0, questions.size())
+                .filter(i -> !answered.contains(i))
+                .map(i -> new BatchAnswer(i, questions.get(i), null, null, "Délai du lot dépassé", millis));
+    }
+    
+    // Routage de tout le lot, puis un seul appel d'embedding pour les questions DOCUMENT
+    private BatchPlan planBatch(List<String> questions) {
+        long routingStart = System.nanoTime();
+        List<QueryRouter.Route> routes = queryRouter.routeAll(questions);
+        chatMetrics.recordStage("routing", "BATCH", System.nanoTime() - routingStart);
         
-        List<Document> relevantDocs = new ArrayList<>();
+        List<Integer> documentQuestions = new ArrayList<>();
+        for (int i = 0; i < routes.size(); i++) {
+            if ("DOCUMENT".equals(routes.get(i).type())) {
+                documentQuestions.add(i);
+            }
+        }
+        log.info("🎯 Lot routé en {} ms : {} DOCUMENT, {} autres",
+                (System.nanoTime() - routingStart) / 1_000_000, documentQuestions.size(),
+                questions.size() - documentQuestions.size());
         
+        // Embedding réutilisé par le cache sémantique et la recherche vectorielle ; inutile si le
+        // document complet est dans le system prompt et que le cache sémantique est désactivé
+        float[][] embeddings = new float[questions.size()][];
+        boolean fullDocument = systemPromptFor(corpusRegistry.current()).fullDocument();
+        if (!documentQuestions.isEmpty() && (!fullDocument || answerCache.semanticEnabled())) {
+            long embeddingStart = System.nanoTime();
+            try {
+                List<float[]> vectors = embeddingModel.embed(documentQuestions.stream().map(questions::get).toList());
+                for (int k = 0; k < documentQuestions.size(); k++) {
+                    embeddings[documentQuestions.get(k)] = vectors.get(k);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Embedding groupé du lot impossible, calcul question par question : {}", e.getMessage());
+            }
+            chatMetrics.recordStage("embedding", "BATCH", System.nanoTime() - embeddingStart);
+        }
+        return new BatchPlan(routes, embeddings);
+    }
+    
+    // Même chemin que chat() à partir du routage ; une erreur devient une ligne "error" du lot
+    private BatchAnswer answerInBatch(int index, String question, QueryRouter.Route route, float[] queryEmbedding) {
+        long start = System.nanoTime();
+        String queryType = route.type();
         try {
-            relevantDocs = vectorStore.similaritySearch(
-                SearchRequest.query(query)
-                    .withTopK(10)
-                    .withSimilarityThreshold(0.2)
-            );
-            log.info("🎯 Recherche vectorielle : {} documents trouvés", relevantDocs.size());
+            if ("STOCK".equals(queryType)) {
+                Optional<String> direct = chatMetrics.stage("fast_path", queryType,
+                        () -> stockFastPath.tryAnswer(question, route));
+                if (direct.isPresent()) {
+                    chatMetrics.recordRequest(queryType, "fast_path", start);
+                    return new BatchAnswer(index, question, queryType, direct.get(), null, millis(System.nanoTime() - start));
+                }
+            }
+            RequestCoalescer.Shared<String> shared = requestCoalescer.call(queryType, question,
+                    () -> answer(question, queryType, start, queryEmbedding));
+            if (shared.follower()) {
+                chatMetrics.recordRequest(queryType, "coalesced", start);
+            }
+            return new BatchAnswer(index, question, queryType, shared.value(), null, millis(System.nanoTime() - start));
+        } catch (AdmissionRejectedException e) {
+            chatMetrics.recordRequest(queryType, "rejected", start);
+            return new BatchAnswer(index, question, queryType, null, e.getMessage(), millis(System.nanoTime() - start));
         } catch (Exception e) {
-            log.warn("⚠️ Recherche vectorielle échouée : {}", e.getMessage());
+            log.error("❌ Erreur sur la question {} du lot", index, e);
+            chatMetrics.recordError(queryType, e);
+            chatMetrics.recordRequest(queryType, "error", start);
+            return new BatchAnswer(index, question, queryType, null, e.getMessage(), millis(System.nanoTime() - start));
         }
-        
-        if (relevantDocs.isEmpty()) {
-            log.info("🔄 Passage à la recherche par mots-clés...");
-            relevantDocs = RagConfig.keywordSearch(query, 10);
-            log.info("📝 Recherche par mots-clés : {} documents trouvés", relevantDocs.size());
+    }
+    
+    // embeddings[i] : embedding de la question i (null si non calculé)
+    private record BatchPlan(List<QueryRouter.Route> routes, float[][] embeddings) {}
+    
+    // Texte d'un fragment streamé (null pour les fragments sans contenu)
+    private static String textOf(ChatResponse chunk) {
+        if (chunk.getResult() == null || chunk.getResult().getOutput() == null) {
+            return null;
+        }
+        String text = chunk.getResult().getOutput().getContent();
+        return text == null || text.isEmpty() ? null : text;
+    }
+    
+    /**
+     * Construit le message utilisateur selon le type de question (CSV, STOCK ou DOCUMENT)
+     */
+    private String buildUserPrompt(String userQuery, String queryType, SystemPrompt system, float[] queryEmbedding) {
+        if ("CSV".equals(queryType)) {
+            // Question CSV : le contexte est déjà dans userQuery
+            log.info("📊 Question CSV détectée - Pas besoin d'ajouter le document PDF");
+            return userQuery;
         }
         
-        if (relevantDocs.isEmpty()) {
-            log.warn("⚠️ Aucun résultat - Utilisation du document complet");
-            return RagConfig.getFullDocumentText();
+        if ("STOCK".equals(queryType)) {
+            // Question Stock : forcer l'appel des fonctions
+            log.info("🗄️ Question STOCK détectée - Les fonctions doivent être appelées");
+            return userQuery + "\n\n⚠️ RAPPEL : Cette question concerne la base de données. Utilise les fonctions disponibles.";
         }
         
-        StringBuilder context = new StringBuilder();
-        for (int i = 0; i < relevantDocs.size(); i++) {
-            Document doc = relevantDocs.get(i);
-            context.append("--- Extrait ").append(i + 1).append(" ---\n");
-            context.append(doc.getContent()).append("\n\n");
+        // Question Document : ajouter le contexte si nécessaire
+        log.info("📄 Question DOCUMENT détectée");
+        
+        if (system.fullDocument()) {
+            // Document déjà dans le system prompt
+            return userQuery;
         }
         
-        return context.toString();
+        // Document volumineux, ajouter le contexte (lu sur l'instantané du system prompt)
+        String context = getRelevantContext(userQuery, queryEmbedding, system.corpus());
+        return """
+            CONTEXTE DU DOCUMENT :
+            """ + context + """
+            
+            QUESTION :
+            """ + userQuery;
     }
     
-    public String testRag(String query) {
-        log.info("🔬 Test du système RAG pour : {}", query);
-        
-        StringBuilder report = new StringBuilder();
-        report.append("=== DIAGNOSTIC RAG ===\n\n");
+    private void recordTimeToFirstToken(String queryType, long startNanos) {
+        long elapsed = System.nanoTime() - startNanos;
+        Timer.builder("chat.stream.time-to-first-token")
+                .description("Délai entre la réception de la question et le premier token streamé")
+                .tag("route", queryType)
+                .register(meterRegistry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        log.info("⏱️ Premier token après {} ms", elapsed / 1_000_000);
+    }
+    
+    // direct : réponse du chemin rapide STOCK (null si le modèle doit être appelé)
+    private record Routed(String queryType, String direct) {}
+    
+    private record PreparedPrompt(AnswerCache.Lookup cached, String system, String prompt) {}
+    
+    // fullDocument : le document complet est dans le system prompt, pas de recherche de contexte
+    private record SystemPrompt(CorpusSnapshot corpus, String text, boolean fullDocument) {}
+    
+    private String getRelevantContext(String query, float[] queryEmbedding, CorpusSnapshot corpus) {
+        log.info("🔍 Recherche de contexte pertinent pour : {}", query);
         
-        String fullText = RagConfig.getFullDocumentText();
-        report.append("📊 Taille du document : ").append(fullText.length()).append(" caractères\n");
-        report.append("📦 Nombre total de chunks : ").append(RagConfig.getAllDocuments().size()).append("\n");
-        report.append("🎯 Type de question : ").append(detectQueryType(query)).append("\n\n");
+        // Recherche vectorielle et par mots-clés en parallèle, fusionnées par RRF
+        List<Document> relevantDocs = hybridRetriever.retrieve(query, queryEmbedding, 10, corpus);
         
-        try {
-            List<Document> vectorResults = vectorStore.similaritySearch(
-                SearchRequest.query(query).withTopK(5).withSimilarityThreshold(0.2)
-            );
-            report.append("🎯 Recherche vectorielle : ").append(vectorResults.size()).append(" résultats\n");
-            for (int i = 0; i < Math.min(3, vectorResults.size()); i++) {
-                String preview = vectorResults.get(i).getContent()
-                    .substring(0, Math.min(100, vectorResults.get(i).getContent().length()));
-                report.append("   - Résultat ").append(i + 1).append(" : ").append(preview).append("...\n");
-            }
-        } catch (Exception e) {
-            report.append("❌ Recherche vectorielle échouée : ").append(e.getMessage()).append("\n");
+        if (relevantDocs.isEmpty()) {
+            log.warn("⚠️ Aucun résultat - Utilisation du début du document (budget de tokens)");
+            return contextPacker.truncateToBudget(corpus.fullText());
         }
-        report.append("\n");
         
-        List<Document> keywordResults = RagConfig.keywordSearch(query, 5);
-        report.append("📝 Recherche par mots-clés : ").append(keywordResults.size()).append(" résultats\n");
-        for (int i = 0; i < Math.min(3, keywordResults.size()); i++) {
-            String preview = keywordResults.get(i).getContent()
-                .substring(0, Math.min(100, keywordResults.get(i).getContent().length()));
-            report.append("   - Résultat ").append(i + 1).append(" : ").append(preview).append("...\n");
-        }
-        report.append("\n");
+        // Chunks voisins recollés, doublons retirés, taille bornée par le budget de tokens
+        return contextPacker.pack(relevantDocs);
+    }
+    
+    public RagDiagnostics testRag(String query) {
+        log.info("🔬 Test du système RAG pour : {}", query);
+        long start = System.nanoTime();
+        CorpusSnapshot corpus = corpusRegistry.current();
+        
+        long routingStart = System.nanoTime();
+        String route = queryRouter.route(query).type();
+        long routingNanos = System.nanoTime() - routingStart;
         
-        String context = getRelevantContext(query);
-        report.append("📄 Contexte final : ").append(context.length()).append(" caractères\n");
-        report.append("Aperçu : ").append(context.substring(0, Math.min(200, context.length()))).append("...\n");
+        // Même chemin que les vraies questions DOCUMENT : recherche hybride puis packing
+        HybridRetriever.Retrieval retrieval = hybridRetriever.retrieveDetailed(query, 10, corpus);
+        long contextStart = System.nanoTime();
+        String context = retrieval.fused().isEmpty()
+            ? contextPacker.truncateToBudget(corpus.fullText())
+            : contextPacker.pack(retrieval.fused());
+        long contextNanos = System.nanoTime() - contextStart;
         
-        return report.toString();
+        return new RagDiagnostics(
+            query,
+            route,
+            new RagDiagnostics.Corpus(corpus.generation(), corpus.chunks().size(), corpus.fullText().length(),
+                corpus.vectorIndexReady()),
+            diagnose(retrieval.vector()),
+            diagnose(retrieval.keyword()),
+            retrieval.fused().size(),
+            new RagDiagnostics.Context(context.length(), contextPacker.estimateTokens(context),
+                contextPacker.tokenBudget(), preview(context, 200)),
+            new RagDiagnostics.Timings(
+                millis(routingNanos),
+                millis(retrieval.vector().nanos()),
+                millis(retrieval.keyword().nanos()),
+                millis(retrieval.fuseNanos()),
+                millis(retrieval.totalNanos()),
+                millis(contextNanos),
+                millis(System.nanoTime() - start)));
+    }
+    
+    private static RagDiagnostics.Leg diagnose(HybridRetriever.Leg leg) {
+        List<String> previews = leg.results().stream()
+            .limit(3)
+            .map(doc -> preview(doc.getContent(), 100))
+            .toList();
+        return new RagDiagnostics.Leg(leg.results().size(), leg.outcome(), previews);
+    }
+    
+    private static String preview(String text, int length) {
+        return text.length() <= length ? text : text.substring(0, length) + "...";
+    }
+    
+    private static double millis(long nanos) {
+        return Math.round(nanos / 10_000.0) / 100.0;
     }
-}
\ No newline at end of file
+}
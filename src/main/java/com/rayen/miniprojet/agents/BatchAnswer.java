@@ -0,0 +1,12 @@
+package com.rayen.miniprojet.agents;
+
+/**
+ * Une ligne de la réponse NDJSON de /chat/batch : index de la question dans le lot,
+ * route, réponse (ou error si elle a échoué) et durée de traitement en millisecondes
+ */
+public record BatchAnswer(int index,
+                          String question,
+                          String route,
+                          String answer,
+                          String error,
+                          double millis) {}
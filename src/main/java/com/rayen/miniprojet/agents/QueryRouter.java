@@ -0,0 +1,184 @@
+package com.rayen.miniprojet.agents;
+
+import com.rayen.miniprojet.entities.ProductChangedEvent;
+import com.rayen.miniprojet.repositories.ProductRepository;
+import com.rayen.miniprojet.repositories.ProductRepository.CatalogEntry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routage des questions (CSV, STOCK, DOCUMENT) en une passe : les mots-clés de routage,
+ * les noms et les SKU du catalogue sont compilés dans un seul automate.
+ *
+ * L'automate est reconstruit en arrière-plan quand le catalogue change (après commit,
+ * REBUILD_DELAY_MS après la dernière modification d'une rafale), puis remplacé atomiquement ; les requêtes en cours
+ * continuent sur l'ancienne version.
+ */
+@Component
+@Slf4j
+public class QueryRouter {
+
+    private static final long REBUILD_DELAY_MS = 200;
+    // Rafale ininterrompue : reconstruction forcée au plus tard après ce délai
+    private static final long MAX_REBUILD_DELAY_MS = 2000;
+    // Un premier mot de nom de produit plus court n'est pas assez distinctif pour servir d'alias
+    private static final int MIN_ALIAS_LENGTH = 4;
+
+    private static final List<String> CSV_KEYWORDS = List.of(
+        "contexte : l'utilisateur a uploadé un fichier csv", "données csv");
+    private static final List<String> DIRECTIONS = List.of("nord", "sud", "est", "ouest");
+    // Formes de "coûter" en mots entiers : le préfixe "coute" reconnaîtrait aussi "couteau" une fois les accents retirés
+    private static final List<String> STOCK_KEYWORDS = List.of("prix", "coûte", "coûtes", "coûtent", "coûté");
+    // Reconnus en début de mot, comme l'ancien contains() : "ruptures", "coûtait", "coûtera", "produits"...
+    private static final List<String> STOCK_PREFIXES = List.of(
+        "stock actuel", "coûter", "coûta", "disponible", "rupture", "quantité en stock", "liste les produits", "produit");
+
+    private final ProductRepository productRepository;
+    private final ScheduledExecutorService rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "query-router-rebuild");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Reconstruction programmée (null si aucune) et date de la première modification non prise en compte
+    private ScheduledFuture<?> pendingRebuild;
+    private long firstPendingNanos;
+    private long rebuildSequence;
+
+    private volatile RoutingAutomaton automaton;
+
+    public QueryRouter(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+        // Mots-clés seuls en attendant le chargement du catalogue
+        this.automaton = keywords().build();
+    }
+
+    // ambiguous : un nom cité correspond à plusieurs produits du catalogue
+    public record Route(String type, Set<String> skus, boolean ambiguous) {}
+
+    /**
+     * Type de question et SKU du catalogue cités (nom complet, SKU ou alias)
+     */
+    public Route route(String query) {
+        return route(automaton, query);
+    }
+
+    /**
+     * Routage d'un lot de questions en une passe, sur une même version de l'automate
+     */
+    public List<Route> routeAll(List<String> queries) {
+        RoutingAutomaton current = automaton;
+        return queries.stream().map(query -> route(current, query)).toList();
+    }
+
+    private static Route route(RoutingAutomaton automaton, String query) {
+        RoutingAutomaton.Match match = automaton.match(query);
+        if (match.has(RoutingAutomaton.CSV)
+                || (match.has(RoutingAutomaton.REGION) && match.has(RoutingAutomaton.DIRECTION))) {
+            return new Route("CSV", Set.of(), false);
+        }
+        if (match.has(RoutingAutomaton.STOCK) || match.has(RoutingAutomaton.PRODUCT)) {
+            return new Route("STOCK", match.skus(), match.ambiguous());
+        }
+        return new Route("DOCUMENT", Set.of(), false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Toute modification de produit reporte la reconstruction à REBUILD_DELAY_MS plus tard
+     * (une seule par rafale, lancée après la dernière modification)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (rebuilder) {
+            long now = System.nanoTime();
+            if (pendingRebuild == null) {
+                firstPendingNanos = now;
+            } else if (now - firstPendingNanos < TimeUnit.MILLISECONDS.toNanos(MAX_REBUILD_DELAY_MS - REBUILD_DELAY_MS)) {
+                pendingRebuild.cancel(false);
+            } else {
+                return; // reconstruction déjà imminente : elle verra aussi cette modification
+            }
+            long sequence = ++rebuildSequence;
+            pendingRebuild = rebuilder.schedule(() -> debouncedRebuild(sequence), REBUILD_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void debouncedRebuild(long sequence) {
+        synchronized (rebuilder) {
+            if (sequence != rebuildSequence) {
+                return; // annulée trop tard : une reconstruction plus récente est programmée
+            }
+            pendingRebuild = null;
+        }
+        rebuild();
+    }
+
+    /**
+     * Recompile l'automate depuis le catalogue et le publie atomiquement
+     */
+    public synchronized void rebuild() {
+        long start = System.nanoTime();
+        try {
+            List<CatalogEntry> catalog = productRepository.findAllProjectedBy();
+            RoutingAutomaton.Builder builder = keywords();
+
+            // Alias = premier mot du nom, seulement s'il n'est partagé par aucun autre produit
+            Map<String, String> aliases = new HashMap<>();
+            for (CatalogEntry entry : catalog) {
+                builder.add(entry.getSku(), RoutingAutomaton.PRODUCT, entry.getSku());
+                if (entry.getName() != null) {
+                    builder.add(entry.getName(), RoutingAutomaton.PRODUCT, entry.getSku());
+                    String first = RoutingAutomaton.normalize(entry.getName()).split(" ", 2)[0];
+                    if (first.length() >= MIN_ALIAS_LENGTH) {
+                        aliases.merge(first, entry.getSku(), (a, b) -> a.equals(b) ? a : "");
+                    }
+                }
+            }
+            aliases.forEach((alias, sku) -> {
+                if (!sku.isEmpty()) {
+                    builder.add(alias, RoutingAutomaton.PRODUCT, sku);
+                }
+            });
+
+            RoutingAutomaton rebuilt = builder.build();
+            this.automaton = rebuilt;
+            log.info("🧭 Routeur reconstruit : {} produits, {} motifs, {} nœuds en {} ms",
+                catalog.size(), rebuilt.patternCount(), rebuilt.nodeCount(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (Exception e) {
+            log.error("❌ Reconstruction du routeur échouée, l'ancienne version reste active", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    private static RoutingAutomaton.Builder keywords() {
+        RoutingAutomaton.Builder builder = new RoutingAutomaton.Builder();
+        CSV_KEYWORDS.forEach(keyword -> builder.add(keyword, RoutingAutomaton.CSV));
+        builder.addPrefix("région", RoutingAutomaton.REGION);
+        DIRECTIONS.forEach(direction -> builder.add(direction, RoutingAutomaton.DIRECTION));
+        STOCK_KEYWORDS.forEach(keyword -> builder.add(keyword, RoutingAutomaton.STOCK));
+        STOCK_PREFIXES.forEach(keyword -> builder.addPrefix(keyword, RoutingAutomaton.STOCK));
+        return builder;
+    }
+}
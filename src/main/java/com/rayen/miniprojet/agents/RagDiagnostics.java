@@ -0,0 +1,28 @@
+package com.rayen.miniprojet.agents;
+
+import java.util.List;
+
+/**
+ * Diagnostic structuré de /test-rag : corpus interrogé, résultats de chaque jambe
+ * de recherche, contexte final et durée de chaque étape (en millisecondes)
+ */
+public record RagDiagnostics(String query,
+                             String route,
+                             Corpus corpus,
+                             Leg vector,
+                             Leg keyword,
+                             int fusedResults,
+                             Context context,
+                             Timings timingsMs) {
+
+    // vectorIndexReady = false : embeddings en cours, recherche par mots-clés seule
+    public record Corpus(long generation, int chunks, int documentChars, boolean vectorIndexReady) {}
+
+    // outcome : ok, error, timeout (budget de la jambe dépassé) ou pending (index vectoriel en construction)
+    public record Leg(int results, String outcome, List<String> previews) {}
+
+    public record Context(int chars, int tokens, int tokenBudget, String preview) {}
+
+    public record Timings(double routing, double vectorSearch, double keywordSearch,
+                          double fusion, double retrieval, double contextPacking, double total) {}
+}
@@ -0,0 +1,305 @@
+package com.rayen.miniprojet.agents;
+
+import com.rayen.miniprojet.rag.FrenchAnalyzer;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Automate d'Aho-Corasick sur le texte normalisé (minuscules, sans accents, ponctuation → espace).
+ * Tous les motifs (mots-clés de routage, noms et SKU du catalogue) sont reconnus en une
+ * seule passe sur la question ; seules les occurrences alignées sur des mots sont retenues.
+ * Un motif ajouté par {@link Builder#addPrefix} doit seulement commencer un mot :
+ * "rupture" reconnaît aussi "ruptures", "coûte" aussi "coûtent".
+ *
+ * Immuable une fois construit : les transitions sont compactées en tableaux triés par nœud.
+ */
+final class RoutingAutomaton {
+
+    // Catégories de motifs (combinables sur un même nœud)
+    static final int CSV = 1;
+    static final int REGION = 1 << 1;
+    static final int DIRECTION = 1 << 2;
+    static final int STOCK = 1 << 3;
+    static final int PRODUCT = 1 << 4;
+
+    private final int[] firstEdge;
+    private final char[] edgeChars;
+    private final int[] edgeTargets;
+    private final int[] fail;
+    private final int[] outLink;
+    private final int[] depth;
+    private final int[] flags;
+    // Catégories des motifs reconnus en début de mot (fin de mot libre)
+    private final int[] prefixFlags;
+    // SKU des produits dont un nom ou code se termine sur le nœud (plusieurs si le nom est partagé)
+    private final String[][] skus;
+    private final int patternCount;
+
+    private RoutingAutomaton(int[] firstEdge, char[] edgeChars, int[] edgeTargets, int[] fail, int[] outLink,
+                             int[] depth, int[] flags, int[] prefixFlags, String[][] skus, int patternCount) {
+        this.firstEdge = firstEdge;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.fail = fail;
+        this.outLink = outLink;
+        this.depth = depth;
+        this.flags = flags;
+        this.prefixFlags = prefixFlags;
+        this.skus = skus;
+        this.patternCount = patternCount;
+    }
+
+    int patternCount() {
+        return patternCount;
+    }
+
+    int nodeCount() {
+        return depth.length;
+    }
+
+    /**
+     * Parcourt la question une fois et cumule les catégories et SKU reconnus
+     */
+    Match match(String query) {
+        String text = normalize(query);
+        int matchedFlags = 0;
+        Set<String> matchedSkus = new LinkedHashSet<>();
+        List<String[]> sharedNames = new ArrayList<>();
+
+        int state = 0;
+        int n = text.length();
+        for (int i = 0; i < n; i++) {
+            char c = text.charAt(i);
+            int next = child(state, c);
+            while (next < 0 && state != 0) {
+                state = fail[state];
+                next = child(state, c);
+            }
+            state = Math.max(next, 0);
+
+            boolean endsWord = i + 1 == n || text.charAt(i + 1) == ' ';
+            for (int t = terminal(state) ? state : outLink[state]; t > 0; t = outLink[t]) {
+                int found = endsWord ? flags[t] | prefixFlags[t] : prefixFlags[t];
+                if (found == 0) {
+                    continue;
+                }
+                int start = i - depth[t] + 1;
+                if (start == 0 || text.charAt(start - 1) == ' ') {
+                    matchedFlags |= found;
+                    if (endsWord && skus[t] != null) {
+                        if (skus[t].length == 1) {
+                            matchedSkus.add(skus[t][0]);
+                        } else {
+                            sharedNames.add(skus[t]);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Nom partagé : levé si la question cite aussi un seul de ses produits (SKU exact, nom plus long)
+        boolean ambiguous = false;
+        Set<String> uniqueSkus = Set.copyOf(matchedSkus);
+        for (String[] candidates : sharedNames) {
+            if (Collections.disjoint(uniqueSkus, Arrays.asList(candidates))) {
+                Collections.addAll(matchedSkus, candidates);
+                ambiguous = true;
+            }
+        }
+        return new Match(matchedFlags, matchedSkus, ambiguous);
+    }
+
+    // ambiguous : un nom reconnu désigne plusieurs produits (tous présents dans skus)
+    record Match(int flags, Set<String> skus, boolean ambiguous) {
+        boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+
+    /**
+     * Même normalisation pour les motifs et la question : mots séparés par un seul espace
+     */
+    static String normalize(String text) {
+        String folded = FrenchAnalyzer.fold(text);
+        StringBuilder out = new StringBuilder(folded.length());
+        boolean space = true;
+        for (int i = 0; i < folded.length(); i++) {
+            char c = folded.charAt(i);
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                out.append(c);
+                space = false;
+            } else if (!space) {
+                out.append(' ');
+                space = true;
+            }
+        }
+        int length = out.length();
+        if (length > 0 && out.charAt(length - 1) == ' ') {
+            out.setLength(length - 1);
+        }
+        return out.toString();
+    }
+
+    private boolean terminal(int node) {
+        return (flags[node] | prefixFlags[node]) != 0;
+    }
+
+    // Transition par recherche dichotomique dans les arêtes triées du nœud ; -1 si absente
+    private int child(int node, char c) {
+        int low = firstEdge[node];
+        int high = firstEdge[node + 1] - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            char midChar = edgeChars[mid];
+            if (midChar < c) {
+                low = mid + 1;
+            } else if (midChar > c) {
+                high = mid - 1;
+            } else {
+                return edgeTargets[mid];
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Accumule les motifs puis compile l'automate
+     */
+    static final class Builder {
+        // Transitions pendant la construction : clé = (nœud << 16) | caractère
+        private final Map<Long, Integer> transitions = new HashMap<>();
+        private int[] depth = new int[1024];
+        private int[] flags = new int[1024];
+        private int[] prefixFlags = new int[1024];
+        private String[][] skus = new String[1024][];
+        private int nodeCount = 1;
+        private int patternCount;
+
+        Builder add(String pattern, int flag) {
+            return add(pattern, flag, null);
+        }
+
+        Builder add(String pattern, int flag, String sku) {
+            int node = insert(pattern);
+            if (node <= 0) {
+                return this;
+            }
+            flags[node] |= flag;
+            if (sku != null) {
+                String[] existing = skus[node];
+                if (existing == null) {
+                    skus[node] = new String[] {sku};
+                } else if (!Arrays.asList(existing).contains(sku)) {
+                    String[] grown = Arrays.copyOf(existing, existing.length + 1);
+                    grown[existing.length] = sku;
+                    skus[node] = grown;
+                }
+            }
+            patternCount++;
+            return this;
+        }
+
+        /**
+         * Motif reconnu au début d'un mot, quelle que soit la fin du mot (formes fléchies)
+         */
+        Builder addPrefix(String pattern, int flag) {
+            int node = insert(pattern);
+            if (node > 0) {
+                prefixFlags[node] |= flag;
+                patternCount++;
+            }
+            return this;
+        }
+
+        // Nœud terminal du motif normalisé (0 si le motif est vide)
+        private int insert(String pattern) {
+            String normalized = normalize(pattern);
+            int node = 0;
+            for (int i = 0; i < normalized.length(); i++) {
+                long key = ((long) node << 16) | normalized.charAt(i);
+                Integer next = transitions.get(key);
+                if (next == null) {
+                    next = newNode(depth[node] + 1);
+                    transitions.put(key, next);
+                }
+                node = next;
+            }
+            return node;
+        }
+
+        RoutingAutomaton build() {
+            // Transitions triées par (nœud, caractère) → représentation CSR
+            long[] keys = new long[transitions.size()];
+            int k = 0;
+            for (long key : transitions.keySet()) {
+                keys[k++] = key;
+            }
+            Arrays.sort(keys);
+
+            int[] firstEdge = new int[nodeCount + 1];
+            char[] edgeChars = new char[keys.length];
+            int[] edgeTargets = new int[keys.length];
+            for (int e = 0; e < keys.length; e++) {
+                int node = (int) (keys[e] >>> 16);
+                edgeChars[e] = (char) (keys[e] & 0xFFFF);
+                edgeTargets[e] = transitions.get(keys[e]);
+                firstEdge[node + 1]++;
+            }
+            for (int node = 0; node < nodeCount; node++) {
+                firstEdge[node + 1] += firstEdge[node];
+            }
+
+            int[] finalDepth = Arrays.copyOf(depth, nodeCount);
+            int[] finalFlags = Arrays.copyOf(flags, nodeCount);
+            int[] finalPrefixFlags = Arrays.copyOf(prefixFlags, nodeCount);
+            String[][] finalSkus = Arrays.copyOf(skus, nodeCount);
+            int[] fail = new int[nodeCount];
+            int[] outLink = new int[nodeCount];
+            RoutingAutomaton automaton = new RoutingAutomaton(firstEdge, edgeChars, edgeTargets, fail,
+                outLink, finalDepth, finalFlags, finalPrefixFlags, finalSkus, patternCount);
+
+            // Liens d'échec et de sortie en largeur d'abord
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int e = firstEdge[0]; e < firstEdge[1]; e++) {
+                queue.add(edgeTargets[e]);
+            }
+            while (!queue.isEmpty()) {
+                int node = queue.poll();
+                for (int e = firstEdge[node]; e < firstEdge[node + 1]; e++) {
+                    int target = edgeTargets[e];
+                    char c = edgeChars[e];
+                    int f = fail[node];
+                    int next = automaton.child(f, c);
+                    while (next < 0 && f != 0) {
+                        f = fail[f];
+                        next = automaton.child(f, c);
+                    }
+                    fail[target] = Math.max(next, 0);
+                    outLink[target] = automaton.terminal(fail[target]) ? fail[target] : outLink[fail[target]];
+                    queue.add(target);
+                }
+            }
+            return automaton;
+        }
+
+        private int newNode(int nodeDepth) {
+            if (nodeCount == depth.length) {
+                int size = nodeCount * 2;
+                depth = Arrays.copyOf(depth, size);
+                flags = Arrays.copyOf(flags, size);
+                prefixFlags = Arrays.copyOf(prefixFlags, size);
+                skus = Arrays.copyOf(skus, size);
+            }
+            depth[nodeCount] = nodeDepth;
+            return nodeCount++;
+        }
+    }
+}
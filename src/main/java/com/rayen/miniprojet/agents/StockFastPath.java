@@ -0,0 +1,143 @@
+package com.rayen.miniprojet.agents;
+
+import com.rayen.miniprojet.rag.FrenchAnalyzer;
+import com.rayen.miniprojet.tools.StockTools;
+import com.rayen.miniprojet.tools.StockTools.StockInfo;
+import com.rayen.miniprojet.tools.StockTools.StockRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Réponse directe (sans LLM) aux questions STOCK entièrement résolues :
+ * stock d'un ou plusieurs produits reconnus par le routeur, ou liste des produits sous leur seuil.
+ *
+ * Les données viennent des mêmes fonctions que celles appelées par le modèle
+ * (getProductInfo / getLowStockProducts) et sont mises en forme par un gabarit.
+ * Toute question ambiguë (prix, explication, produit inconnu, nom porté par plusieurs produits...) retourne vide
+ * et suit le chemin normal via le modèle.
+ */
+@Component
+@Slf4j
+public class StockFastPath {
+
+    private static final String NOT_FOUND = "Non trouvé";
+
+    private static final List<String> STOCK_TERMS = List.of(
+        "stock", "quantite", "disponible", "disponibilite", "statut", "unites", "combien");
+    private static final List<String> LOW_STOCK_TERMS = List.of(
+        "stock critique", "rupture", "sous le seuil", "stock faible", "en alerte", "seuil minimum");
+    private static final List<String> LISTING_TERMS = List.of(
+        "liste", "lister", "quels produits", "quels sont les produits", "produits");
+    // Questions qui demandent plus qu'une lecture du stock : laissées au modèle
+    private static final List<String> LLM_ONLY_TERMS = List.of(
+        "prix", "coute", "cout", "pourquoi", "comment", "explique", "politique", "procedure", "commander");
+
+    private final StockTools stockTools;
+    private final Counter hits;
+    private final Counter misses;
+
+    public StockFastPath(StockTools stockTools, MeterRegistry meterRegistry) {
+        this.stockTools = stockTools;
+        this.hits = Counter.builder("chat.stock.fast-path")
+            .description("Questions STOCK répondues sans appel au modèle")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("chat.stock.fast-path")
+            .description("Questions STOCK répondues sans appel au modèle")
+            .tag("result", "miss")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Tente de répondre directement à partir des SKU résolus par le routeur ;
+     * vide si la question doit passer par le modèle
+     */
+    public Optional<String> tryAnswer(String query, QueryRouter.Route route) {
+        // Nom partagé par plusieurs produits : le modèle demandera lequel
+        Optional<String> answer = route.ambiguous() ? Optional.empty() : resolve(query, route.skus());
+        if (answer.isPresent()) {
+            hits.increment();
+            log.info("⚡ Question STOCK résolue sans LLM");
+        } else {
+            misses.increment();
+        }
+        return answer;
+    }
+
+    private Optional<String> resolve(String query, Set<String> skus) {
+        String folded = " " + FrenchAnalyzer.fold(query).replaceAll("[^a-z0-9]+", " ") + " ";
+        if (containsAny(folded, LLM_ONLY_TERMS)) {
+            return Optional.empty();
+        }
+
+        if (!skus.isEmpty()) {
+            return containsAny(folded, STOCK_TERMS) ? answerProducts(skus) : Optional.empty();
+        }
+
+        if (containsAny(folded, LOW_STOCK_TERMS) && containsAny(folded, LISTING_TERMS)) {
+            return Optional.of(answerLowStock());
+        }
+        return Optional.empty();
+    }
+
+    private Optional<String> answerProducts(Set<String> skus) {
+        List<StockInfo> products = new ArrayList<>();
+        for (String sku : skus) {
+            StockInfo info = stockTools.getProductInfo().apply(new StockRequest(sku));
+            if (NOT_FOUND.equals(info.status())) {
+                return Optional.empty(); // SKU inconnu : le modèle formulera la réponse
+            }
+            products.add(info);
+        }
+
+        StringBuilder answer = new StringBuilder();
+        for (StockInfo info : products) {
+            answer.append("Le stock actuel de ").append(info.name())
+                  .append(" (").append(info.sku()).append(") est de ")
+                  .append(units(info.quantity())).append(". Statut : ")
+                  .append(info.status()).append(".\n");
+        }
+        return Optional.of(answer.toString().trim());
+    }
+
+    private String answerLowStock() {
+        List<StockInfo> products = stockTools.getLowStockProducts().apply(null);
+        if (products.isEmpty()) {
+            return "Aucun produit n'est actuellement en dessous de son seuil minimum.";
+        }
+
+        long total = stockTools.countLowStockProducts();
+        StringBuilder answer = new StringBuilder("Voici les produits en stock critique (");
+        if (total > products.size()) {
+            answer.append("les ").append(products.size()).append(" plus critiques sur ").append(total);
+        } else {
+            answer.append(products.size());
+        }
+        answer.append(") :\n");
+        for (StockInfo info : products) {
+            answer.append("- ").append(info.name()).append(" (").append(info.sku()).append(") : ")
+                  .append(units(info.quantity())).append("\n");
+        }
+        return answer.toString().trim();
+    }
+
+    private static boolean containsAny(String folded, List<String> terms) {
+        for (String term : terms) {
+            if (folded.contains(" " + term + " ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String units(int quantity) {
+        return quantity + (quantity > 1 ? " unités" : " unité");
+    }
+}
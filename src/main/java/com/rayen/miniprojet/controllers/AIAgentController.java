@@ -1,16 +1,35 @@
 package com.rayen.miniprojet.controllers;
 
 import com.rayen.miniprojet.agents.AIAgent;
+import com.rayen.miniprojet.agents.BatchAnswer;
+import com.rayen.miniprojet.agents.RagDiagnostics;
 
+import com.rayen.miniprojet.services.AdmissionRejectedException;
+import com.rayen.miniprojet.services.CsvDatasetStore;
 import com.rayen.miniprojet.services.CsvService;
+import com.rayen.miniprojet.services.ProductImportService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
 
 @RestController
 @RequiredArgsConstructor
@@ -19,6 +38,8 @@ public class AIAgentController {
 
     private final AIAgent agent;
     private final CsvService csvService; // Injection du nouveau service
+    private final CsvDatasetStore csvDatasetStore;
+    private final ProductImportService productImportService;
 
     // Ton ancien chat (Database)
     @GetMapping("/chat")
@@ -26,16 +47,99 @@ public class AIAgentController {
         return agent.chat(query);
     }
 
+    // Variante streaming (SSE) : les tokens arrivent au fil de la génération
+    @GetMapping(value = "/chat/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatStream(@RequestParam String query) {
+        return toServerSentEvents(agent.chatStream(query));
+    }
+
+    // Lot de questions (tableau JSON) : une ligne NDJSON par réponse, envoyée dès qu'elle est prête
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchAnswer> chatBatch(@RequestBody List<String> questions) {
+        return agent.chatBatch(questions);
+    }
+
     // 🆕 Nouveau endpoint pour CSV
     @PostMapping("/chat/csv")
     public String analyzeCsv(@RequestParam("file") MultipartFile file, 
                              @RequestParam("query") String query) {
-        
-        // 1. Convertir le fichier en texte
-        String csvData = csvService.analyzeCsvContent(file);
+        return agent.chat(buildCsvPrompt(csvService.analyzeCsvContent(file), query));
+    }
+
+    // Variante streaming (SSE) de l'analyse CSV
+    @PostMapping(value = "/chat/csv/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> analyzeCsvStream(@RequestParam("file") MultipartFile file,
+                                                         @RequestParam("query") String query) {
+        return toServerSentEvents(agent.chatStream(buildCsvPrompt(csvService.analyzeCsvContent(file), query)));
+    }
+
+    // Upload unique : le CSV est parsé une fois, les questions suivantes utilisent l'identifiant retourné
+    @PostMapping("/csv/datasets")
+    public CsvDatasetStore.DatasetInfo uploadDataset(@RequestParam("file") MultipartFile file) throws Exception {
+        return csvDatasetStore.upload(file).info();
+    }
 
-        // 2. Construire un prompt complet pour l'IA
-        String fullPrompt = """
+    @GetMapping("/csv/datasets")
+    public List<CsvDatasetStore.DatasetInfo> listDatasets() {
+        return csvDatasetStore.list().stream().map(CsvDatasetStore.CsvDataset::info).toList();
+    }
+
+    @DeleteMapping("/csv/datasets/{datasetId}")
+    public ResponseEntity<Void> deleteDataset(@PathVariable String datasetId) {
+        return csvDatasetStore.remove(datasetId) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/chat/csv/{datasetId}")
+    public String chatDataset(@PathVariable String datasetId, @RequestParam String query) {
+        return agent.chat(buildDatasetPrompt(datasetId, query));
+    }
+
+    @GetMapping(value = "/chat/csv/{datasetId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> chatDatasetStream(@PathVariable String datasetId, @RequestParam String query) {
+        return toServerSentEvents(agent.chatStream(buildDatasetPrompt(datasetId, query)));
+    }
+    
+    
+    // Import en masse du catalogue : corps brut en text/csv ou application/x-ndjson (lu en flux) ;
+    // 500 avec le bilan des lots validés si l'import s'est arrêté en cours de route
+    @PostMapping(value = "/products/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ProductImportService.ImportResult> importProducts(HttpServletRequest request) throws Exception {
+        ProductImportService.Format format = request.getContentType().startsWith("text/csv")
+                ? ProductImportService.Format.CSV
+                : ProductImportService.Format.JSON_LINES;
+        ProductImportService.ImportResult result = productImportService.importProducts(request.getInputStream(), format);
+        return ResponseEntity.status(result.error() == null ? HttpStatus.OK : HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(result);
+    }
+
+    @GetMapping("/test-rag")
+    public RagDiagnostics testRag(@RequestParam String query) {
+        return agent.testRag(query);
+    }
+
+    // Modèle saturé : 429 avec un délai indicatif avant de réessayer
+    @ExceptionHandler(AdmissionRejectedException.class)
+    public ResponseEntity<String> onAdmissionRejected(AdmissionRejectedException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(e.getMessage());
+    }
+
+    // Fichier invalide ou trop volumineux pour les sessions CSV
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> onInvalidArgument(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+    private String buildDatasetPrompt(String datasetId, String query) {
+        CsvDatasetStore.CsvDataset dataset = csvDatasetStore.get(datasetId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Dataset CSV inconnu ou expiré : " + datasetId));
+        return buildCsvPrompt(csvDatasetStore.describe(dataset, query), query);
+    }
+
+    private String buildCsvPrompt(String csvData, String query) {
+        // Construire un prompt complet pour l'IA
+        return """
                 CONTEXTE : L'utilisateur a uploadé un fichier CSV.
                 %s
                 
@@ -43,15 +147,13 @@ public class AIAgentController {
                 
                 Réponds en analysant les données ci-dessus.
                 """.formatted(csvData, query);
-
-        // 3. Envoyer à l'agent
-        return agent.chat(fullPrompt);
     }
-    
-    
-    @GetMapping("/test-rag")
-    public String testRag(@RequestParam String query) {
-        return agent.testRag(query);
+
+    // Un événement "token" par fragment, puis un événement "done" en fin de réponse
+    private Flux<ServerSentEvent<String>> toServerSentEvents(Flux<String> tokens) {
+        return tokens
+                .map(token -> ServerSentEvent.builder(token).event("token").build())
+                .concatWith(Flux.just(ServerSentEvent.builder("").event("done").build()));
     }
     
 }
\ No newline at end of file
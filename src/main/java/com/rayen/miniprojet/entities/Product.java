@@ -1,19 +1,34 @@
 package com.rayen.miniprojet.entities;
 
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
+@EntityListeners(ProductCatalogListener.class) // Routeur et caches notifiés des changements
+@Table(indexes = {
+    @Index(name = "uk_product_sku", columnList = "sku", unique = true),                // Recherche par SKU sans scan
+    @Index(name = "idx_product_low_stock", columnList = "lowStock, shortfallRatio")    // Produits en alerte, les plus critiques d'abord
+})
 @Data                 // Génère Getters, Setters, toString, equals, hashCode
 @NoArgsConstructor    // Génère le constructeur vide (obligatoire pour JPA)
 @AllArgsConstructor   // Génère le constructeur avec tous les arguments
 public class Product {
 
-    @Id @GeneratedValue
+    // Identifiants réservés par blocs de 100 : un appel à la séquence pour 100 insertions
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 100)
     private Long id;
     
     private String sku;
@@ -21,6 +36,10 @@ public class Product {
     private int quantity;
     private int minThreshold;
     
+    // Dérivés de quantity / minThreshold, maintenus à chaque écriture pour être indexables
+    private boolean lowStock;
+    private double shortfallRatio;
+    
     // Constructeur personnalisé sans ID (optionnel, mais pratique pour le DataLoader)
     public Product(String sku, String name, int quantity, int minThreshold) {
         this.sku = sku;
@@ -28,4 +47,14 @@ public class Product {
         this.quantity = quantity;
         this.minThreshold = minThreshold;
     }
+
+    /**
+     * Alerte si quantity <= minThreshold ; sévérité = part du seuil manquante (1 = rupture totale)
+     */
+    @PrePersist
+    @PreUpdate
+    void computeStockLevel() {
+        this.lowStock = quantity <= minThreshold;
+        this.shortfallRatio = minThreshold > 0 ? Math.max(0, minThreshold - quantity) / (double) minThreshold : 0;
+    }
 }
\ No newline at end of file
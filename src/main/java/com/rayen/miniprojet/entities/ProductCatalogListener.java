@@ -0,0 +1,44 @@
+package com.rayen.miniprojet.entities;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.function.Supplier;
+
+/**
+ * Listener JPA : relaie les changements du catalogue sous forme d'événement Spring
+ * (instancié par Spring via le conteneur de beans d'Hibernate)
+ */
+@RequiredArgsConstructor
+public class ProductCatalogListener {
+
+    // Écritures en masse : l'appelant publie lui-même un événement global
+    private static final ThreadLocal<Boolean> SUPPRESSED = ThreadLocal.withInitial(() -> false);
+
+    private final ApplicationEventPublisher publisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Product product) {
+        if (!SUPPRESSED.get()) {
+            publisher.publishEvent(new ProductChangedEvent(product.getSku()));
+        }
+    }
+
+    /**
+     * Exécute {@code work} sans événement par produit sur le thread courant (flush compris)
+     */
+    public static <T> T withoutEvents(Supplier<T> work) {
+        boolean previous = SUPPRESSED.get();
+        SUPPRESSED.set(true);
+        try {
+            return work.get();
+        } finally {
+            SUPPRESSED.set(previous);
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.rayen.miniprojet.entities;
+
+/**
+ * Publié à chaque création, modification ou suppression d'un produit ;
+ * sku null : plusieurs produits modifiés d'un coup (lot d'import)
+ */
+public record ProductChangedEvent(String sku) {}
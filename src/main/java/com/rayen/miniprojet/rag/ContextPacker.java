@@ -0,0 +1,219 @@
+package com.rayen.miniprojet.rag;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Assemble le contexte envoyé au modèle sous un budget de tokens fixe :
+ * 1. les chunks voisins d'une même source (chunk_index consécutifs) sont recollés en passages
+ *    continus, le texte commun entre deux chunks successifs n'étant gardé qu'une fois ;
+ * 2. les doublons exacts sont écartés ;
+ * 3. les passages sont ajoutés par ordre de pertinence (rang de leur meilleur chunk)
+ *    jusqu'au budget, le dernier étant tronqué en fin de phrase si besoin.
+ *
+ * La taille du prompt (et donc le temps de prefill) est ainsi bornée.
+ */
+@Component
+@Slf4j
+public class ContextPacker {
+
+    // Recouvrement maximal recherché entre la fin d'un chunk et le début du suivant
+    private static final int MAX_OVERLAP_CHARS = 4000;
+    // Plus court, un recouvrement est fortuit (ex. une lettre commune) et n'est pas retiré
+    private static final int MIN_OVERLAP_CHARS = 20;
+    // En dessous, un reste de budget ne vaut pas un passage tronqué
+    private static final int MIN_TRUNCATED_TOKENS = 50;
+
+    private final TokenCountEstimator tokenCounter = new JTokkitTokenCountEstimator();
+    private final int tokenBudget;
+    private final DistributionSummary contextChars;
+    private final DistributionSummary contextTokens;
+
+    public ContextPacker(MeterRegistry meterRegistry,
+                         @Value("${rag.context.token-budget:1500}") int tokenBudget) {
+        this.tokenBudget = tokenBudget;
+        this.contextChars = DistributionSummary.builder("rag.context.size")
+            .description("Taille du contexte documentaire injecté dans le prompt")
+            .baseUnit("chars")
+            .register(meterRegistry);
+        this.contextTokens = DistributionSummary.builder("rag.context.tokens")
+            .description("Tokens du contexte documentaire injecté dans le prompt")
+            .baseUnit("tokens")
+            .register(meterRegistry);
+    }
+
+    public int tokenBudget() {
+        return tokenBudget;
+    }
+
+    /**
+     * Contexte prêt pour le prompt ; chaîne vide si aucun chunk
+     */
+    public String pack(List<Document> rankedChunks) {
+        List<Passage> passages = mergeAdjacent(rankedChunks);
+
+        StringBuilder context = new StringBuilder();
+        int used = 0;
+        int included = 0;
+        for (Passage passage : passages) {
+            String header = "--- Extrait " + (included + 1) + " (" + passage.label() + ") ---\n";
+            int headerTokens = tokenCounter.estimate(header);
+            int remaining = tokenBudget - used - headerTokens;
+            if (remaining < MIN_TRUNCATED_TOKENS && included > 0) {
+                break;
+            }
+
+            String text = passage.text();
+            int tokens = tokenCounter.estimate(text);
+            if (tokens > remaining) {
+                text = truncate(text, remaining);
+                tokens = tokenCounter.estimate(text);
+            }
+            context.append(header).append(text).append("\n\n");
+            used += headerTokens + tokens;
+            included++;
+        }
+
+        contextChars.record(context.length());
+        contextTokens.record(used);
+        log.info("📦 Contexte : {} chunks → {} passages, {} retenus, ~{}/{} tokens",
+            rankedChunks.size(), passages.size(), included, used, tokenBudget);
+        return context.toString();
+    }
+
+    /**
+     * Début d'un texte libre (ex. document complet en secours) tenant dans le budget
+     */
+    public String truncateToBudget(String text) {
+        String context = tokenCounter.estimate(text) <= tokenBudget ? text : truncate(text, tokenBudget);
+        contextChars.record(context.length());
+        contextTokens.record(tokenCounter.estimate(context));
+        return context;
+    }
+
+    public int estimateTokens(String text) {
+        return tokenCounter.estimate(text);
+    }
+
+    // Regroupe les chunks par source en passages de chunk_index consécutifs, ordonnés par pertinence
+    private List<Passage> mergeAdjacent(List<Document> rankedChunks) {
+        Map<String, TreeMap<Integer, Ranked>> bySource = new LinkedHashMap<>();
+        List<Passage> standalone = new ArrayList<>();
+        Set<String> seenContent = new HashSet<>();
+
+        for (int rank = 0; rank < rankedChunks.size(); rank++) {
+            Document chunk = rankedChunks.get(rank);
+            if (!seenContent.add(chunk.getContent())) {
+                continue; // doublon exact
+            }
+            Object source = chunk.getMetadata().get(IngestionPipeline.METADATA_SOURCE);
+            Object index = chunk.getMetadata().get(IngestionPipeline.METADATA_CHUNK_INDEX);
+            if (source == null || !(index instanceof Number number)) {
+                standalone.add(new Passage(rank, chunk.getContent(), label(chunk)));
+                continue;
+            }
+            bySource.computeIfAbsent(source.toString(), s -> new TreeMap<>())
+                    .putIfAbsent(number.intValue(), new Ranked(rank, chunk));
+        }
+
+        List<Passage> passages = new ArrayList<>(standalone);
+        for (TreeMap<Integer, Ranked> chunks : bySource.values()) {
+            StringBuilder text = null;
+            int bestRank = Integer.MAX_VALUE;
+            Document first = null;
+            int previousIndex = Integer.MIN_VALUE;
+            for (Map.Entry<Integer, Ranked> entry : chunks.entrySet()) {
+                Ranked ranked = entry.getValue();
+                String content = ranked.chunk().getContent();
+                if (text != null && entry.getKey() == previousIndex + 1) {
+                    int overlap = overlap(text, content);
+                    text.append(overlap == 0 ? " " : "").append(content, overlap, content.length());
+                } else {
+                    if (text != null) {
+                        passages.add(new Passage(bestRank, text.toString(), label(first)));
+                    }
+                    text = new StringBuilder(content);
+                    bestRank = Integer.MAX_VALUE;
+                    first = ranked.chunk();
+                }
+                bestRank = Math.min(bestRank, ranked.rank());
+                previousIndex = entry.getKey();
+            }
+            if (text != null) {
+                passages.add(new Passage(bestRank, text.toString(), label(first)));
+            }
+        }
+
+        passages.sort((a, b) -> Integer.compare(a.rank(), b.rank()));
+        return passages;
+    }
+
+    /**
+     * Longueur du plus long suffixe de {@code previous} qui est aussi un préfixe de {@code next},
+     * 0 s'il est trop court pour être un vrai recouvrement
+     * (fonction préfixe de KMP sur next + séparateur + fin de previous)
+     */
+    static int overlap(CharSequence previous, String next) {
+        int window = Math.min(Math.min(previous.length(), next.length()), MAX_OVERLAP_CHARS);
+        if (window == 0) {
+            return 0;
+        }
+        String prefix = next.substring(0, window);
+        String combined = prefix + '\u0000' + previous.subSequence(previous.length() - window, previous.length());
+        int[] pi = new int[combined.length()];
+        for (int i = 1; i < combined.length(); i++) {
+            int k = pi[i - 1];
+            while (k > 0 && combined.charAt(i) != combined.charAt(k)) {
+                k = pi[k - 1];
+            }
+            if (combined.charAt(i) == combined.charAt(k)) {
+                k++;
+            }
+            pi[i] = k;
+        }
+        int length = pi[combined.length() - 1];
+        return length >= MIN_OVERLAP_CHARS ? length : 0;
+    }
+
+    // Coupe à ~maxTokens (proportionnellement aux caractères), de préférence en fin de phrase
+    private String truncate(String text, int maxTokens) {
+        if (maxTokens <= 0) {
+            return "";
+        }
+        int tokens = Math.max(1, tokenCounter.estimate(text));
+        int end = (int) ((long) text.length() * maxTokens / tokens);
+        while (end > 0 && tokenCounter.estimate(text.substring(0, end)) > maxTokens) {
+            end = end * 9 / 10;
+        }
+        int sentenceEnd = text.lastIndexOf(". ", end);
+        if (sentenceEnd > end / 2) {
+            end = sentenceEnd + 1;
+        }
+        return text.substring(0, end) + " […]";
+    }
+
+    private static String label(Document chunk) {
+        Object source = chunk.getMetadata().get(IngestionPipeline.METADATA_SOURCE);
+        Object page = chunk.getMetadata().get(IngestionPipeline.METADATA_PAGE);
+        String name = source == null ? "document" : source.toString();
+        return page == null ? name : name + ", p. " + page;
+    }
+
+    private record Ranked(int rank, Document chunk) {}
+
+    private record Passage(int rank, String text, String label) {}
+}
@@ -0,0 +1,160 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.LivenessState;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Ingestion initiale du corpus en arrière-plan, une fois le contexte démarré (port HTTP ouvert) :
+ * 1. lecture + découpage → corpus publié sans vecteurs : index mots-clés et texte complet
+ *    utilisables, l'application devient prête (readiness, voir {@link CorpusHealthIndicator}) ;
+ * 2. embedding → chaque lot rejoint le VectorStore ; à la fin, le corpus est republié avec
+ *    l'index vectoriel prêt et la recherche redevient hybride.
+ *
+ * La liveness reste CORRECT pendant l'ingestion (le processus répond) ; elle passe à BROKEN
+ * seulement si le thread d'ingestion meurt sur une erreur fatale (ex. OutOfMemoryError).
+ */
+@Component
+@Slf4j
+public class CorpusBootstrap {
+
+    public enum Phase {
+        STARTING,       // lecture et découpage en cours : pas encore prêt
+        KEYWORD_ONLY,   // index mots-clés et texte complet prêts, embeddings en cours
+        HYBRID,         // index vectoriel complet
+        FAILED          // ingestion interrompue : le dernier corpus publié reste servi
+    }
+
+    private final IngestionPipeline ingestionPipeline;
+    private final VectorStore vectorStore;
+    private final CorpusRegistry corpusRegistry;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int hnswRecallQueries;
+
+    private volatile Phase phase = Phase.STARTING;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile String failure;
+
+    public CorpusBootstrap(IngestionPipeline ingestionPipeline, VectorStore vectorStore,
+                           CorpusRegistry corpusRegistry, ApplicationEventPublisher eventPublisher,
+                           @Value("${rag.vector-store.hnsw.recall-queries:0}") int hnswRecallQueries) {
+        this.ingestionPipeline = ingestionPipeline;
+        this.vectorStore = vectorStore;
+        this.corpusRegistry = corpusRegistry;
+        this.eventPublisher = eventPublisher;
+        this.hnswRecallQueries = hnswRecallQueries;
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        startNanos = System.nanoTime();
+        Thread.ofPlatform().name("rag-bootstrap").daemon().start(this::run);
+        log.info("🚀 Ingestion du corpus lancée en arrière-plan");
+    }
+
+    void run() {
+        try {
+            IngestionPipeline.Result result = ingestionPipeline.ingest(vectorStore, this::publishKeywordIndex);
+
+            // Corpus définitif : documents en échec retirés, index vectoriel complet
+            CorpusSnapshot corpus = corpusRegistry.publish(result.chunks(), result.sourceTexts(), true);
+            endNanos = System.nanoTime();
+            phase = Phase.HYBRID;
+            if (corpus.chunks().isEmpty()) {
+                log.warn("⚠️ Aucun document indexé - vérifier rag.docs.location");
+            } else {
+                logChunks(corpus.chunks());
+                log.info("✅ {} chunks ingérés dans le VectorStore en {} ms - recherche hybride active",
+                         corpus.chunks().size(), elapsedMillis());
+            }
+            eventPublisher.publishEvent(new VectorIndexReadyEvent(corpus));
+            // Bilan après le démarrage de la surveillance : la mesure du rappel HNSW est un parcours exact
+            if (!corpus.chunks().isEmpty()) {
+                report();
+            }
+        } catch (Exception e) {
+            fail(e);
+            log.error("❌ Erreur lors de l'ingestion des documents", e);
+            eventPublisher.publishEvent(new CorpusBootstrapFailedEvent(failure));
+        } catch (Error e) {
+            fail(e);
+            log.error("💀 Erreur fatale pendant l'ingestion - liveness BROKEN", e);
+            AvailabilityChangeEvent.publish(eventPublisher, this, LivenessState.BROKEN);
+            throw e;
+        }
+    }
+
+    // Tous les documents sont découpés : l'index mots-clés et le texte complet suffisent pour répondre
+    private void publishKeywordIndex(IngestionPipeline.Result split) {
+        long indexStart = System.nanoTime();
+        CorpusSnapshot corpus = corpusRegistry.publish(split.chunks(), split.sourceTexts(), false);
+        phase = Phase.KEYWORD_ONLY;
+        log.info("📝 Texte complet : {} caractères - index mots-clés construit : {} termes en {} ms "
+                 + "- prêt en {} ms, index vectoriel en construction",
+                 corpus.fullText().length(), corpus.keywordIndex().vocabularySize(),
+                 (System.nanoTime() - indexStart) / 1_000_000, elapsedMillis());
+    }
+
+    private void fail(Throwable e) {
+        endNanos = System.nanoTime();
+        failure = e.getClass().getSimpleName() + ": " + e.getMessage();
+        phase = Phase.FAILED;
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    // Raison de l'échec (null si aucun)
+    public String failure() {
+        return failure;
+    }
+
+    // Durée de l'ingestion (en cours ou terminée)
+    public long elapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000;
+    }
+
+    // Aperçu des premiers chunks pour debug
+    private static void logChunks(List<Document> chunks) {
+        for (int i = 0; i < Math.min(10, chunks.size()); i++) {
+            String content = chunks.get(i).getContent();
+            log.info("📦 Chunk {} (150 premiers chars) : {}",
+                     i, content.substring(0, Math.min(150, content.length())));
+        }
+    }
+
+    // Bilan de l'index vectoriel
+    private void report() {
+        if (vectorStore instanceof FlatVectorStore flat) {
+            log.info("🧮 FlatVectorStore ({}) : {} Mo de vecteurs dont {} Mo parcourus par requête", flat.quantization(),
+                     flat.memoryBytes() / (1024 * 1024), flat.scanBytes() / (1024 * 1024));
+        } else if (vectorStore instanceof HnswVectorStore hnsw) {
+            HnswVectorStore.Stats stats = hnsw.stats();
+            log.info("🕸️ HNSW (m={}, efConstruction={}, efSearch={}) : {} nœuds, {} niveaux, construit en {} ms "
+                     + "- graphe {} Mo, vecteurs {} Mo",
+                     stats.m(), stats.efConstruction(), stats.efSearch(), stats.nodes(), stats.maxLevel() + 1,
+                     stats.buildMillis(), stats.memoryBytes() / (1024 * 1024), stats.vectorBytes() / (1024 * 1024));
+            if (hnswRecallQueries > 0) {
+                long start = System.nanoTime();
+                double recall = hnsw.recall(hnswRecallQueries, 10);
+                log.info("🎯 HNSW rappel@10 vs recherche exacte : {} ({} requêtes, mesuré en {} ms)",
+                         String.format("%.3f", recall), hnswRecallQueries, (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package com.rayen.miniprojet.rag;
+
+/**
+ * Publié quand l'ingestion initiale échoue : le dernier corpus publié reste servi
+ */
+public record CorpusBootstrapFailedEvent(String failure) {}
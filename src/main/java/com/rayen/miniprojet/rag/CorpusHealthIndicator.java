@@ -0,0 +1,43 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * État du corpus (/actuator/health, composant "corpus"), inclus dans le groupe readiness :
+ * OUT_OF_SERVICE tant que les documents ne sont pas découpés, UP dès que l'index mots-clés
+ * répond, y compris pendant l'embedding (phase KEYWORD_ONLY), DOWN si l'ingestion a échoué.
+ */
+@Component
+@RequiredArgsConstructor
+public class CorpusHealthIndicator implements HealthIndicator {
+
+    private final CorpusBootstrap corpusBootstrap;
+    private final IngestionPipeline ingestionPipeline;
+    private final CorpusRegistry corpusRegistry;
+
+    @Override
+    public Health health() {
+        CorpusBootstrap.Phase phase = corpusBootstrap.phase();
+        IngestionPipeline.Progress progress = ingestionPipeline.progress();
+        CorpusSnapshot corpus = corpusRegistry.current();
+
+        Health.Builder health = switch (phase) {
+            case STARTING -> Health.outOfService();
+            case FAILED -> Health.down();
+            case KEYWORD_ONLY, HYBRID -> Health.up();
+        };
+        health.withDetail("phase", phase)
+            .withDetail("generation", corpus.generation())
+            .withDetail("documents", progress.documents())
+            .withDetail("chunks", progress.chunks())
+            .withDetail("indexedChunks", progress.indexedChunks())
+            .withDetail("elapsedMs", corpusBootstrap.elapsedMillis());
+        if (corpusBootstrap.failure() != null) {
+            health.withDetail("error", corpusBootstrap.failure());
+        }
+        return health.build();
+    }
+}
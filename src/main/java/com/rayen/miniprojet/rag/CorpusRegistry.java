@@ -0,0 +1,51 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Point de publication du corpus courant. Les lectures sont un simple accès atomique ;
+ * les écritures (ingestion, ré-indexation) sont sérialisées, construisent l'instantané
+ * suivant hors de toute lecture puis le publient en un seul échange.
+ */
+@Component
+@Slf4j
+public class CorpusRegistry {
+
+    private final AtomicReference<CorpusSnapshot> current = new AtomicReference<>(CorpusSnapshot.empty());
+
+    public CorpusSnapshot current() {
+        return current.get();
+    }
+
+    /**
+     * Publie un corpus complet (ingestion initiale) ; vectorIndexReady = false tant que
+     * les chunks ne sont interrogeables que par mots-clés
+     */
+    public synchronized CorpusSnapshot publish(List<Document> chunks, Map<String, String> sourceTexts,
+                                               boolean vectorIndexReady) {
+        return swap(current.get().next(chunks, sourceTexts, vectorIndexReady));
+    }
+
+    /**
+     * Publie le corpus où un document est remplacé ; retourne l'instantané précédent
+     */
+    public synchronized CorpusSnapshot replaceSource(String source, List<Document> chunks, String fullText) {
+        CorpusSnapshot previous = current.get();
+        swap(previous.withSource(source, chunks, fullText));
+        return previous;
+    }
+
+    private CorpusSnapshot swap(CorpusSnapshot next) {
+        current.set(next);
+        log.info("🗂️ Corpus génération {} publié : {} chunks, {} termes, {} caractères, index vectoriel {}",
+            next.generation(), next.chunks().size(), next.keywordIndex().vocabularySize(), next.fullText().length(),
+            next.vectorIndexReady() ? "prêt" : "en construction");
+        return next;
+    }
+}
@@ -0,0 +1,136 @@
+package com.rayen.miniprojet.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Version immuable du corpus indexé : chunks, texte complet (global et par document),
+ * index mots-clés et métadonnées de construction.
+ *
+ * Au démarrage, le corpus est d'abord publié dès le découpage (index mots-clés et texte
+ * complet utilisables) puis republié une fois l'index vectoriel complet
+ * ({@link #vectorIndexReady()}) : la recherche hybride n'interroge les vecteurs qu'à partir de là.
+ *
+ * Un changement de corpus produit un nouvel instantané (génération + 1) ; une requête
+ * garde celui qu'elle a lu au départ jusqu'à sa fin, sans verrou ni copie.
+ */
+public final class CorpusSnapshot {
+
+    private static final CorpusSnapshot EMPTY = new CorpusSnapshot(0, List.of(), Map.of(), false);
+
+    private final long generation;
+    private final List<Document> chunks;
+    private final Map<String, String> sourceTexts;
+    private final String fullText;
+    private final KeywordIndex keywordIndex;
+    private final boolean vectorIndexReady;
+    private final Instant builtAt;
+
+    private CorpusSnapshot(long generation, List<Document> chunks, Map<String, String> sourceTexts,
+                           boolean vectorIndexReady) {
+        this.generation = generation;
+        this.chunks = withoutEmbeddings(chunks);
+        // Ordre des noms de documents, comme à l'ingestion
+        this.sourceTexts = Collections.unmodifiableMap(new TreeMap<>(sourceTexts));
+        this.fullText = String.join("", this.sourceTexts.values());
+        this.keywordIndex = KeywordIndex.build(this.chunks);
+        this.vectorIndexReady = vectorIndexReady;
+        this.builtAt = Instant.now();
+    }
+
+    public static CorpusSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Instantané suivant contenant exactement ces chunks et textes, tous présents dans l'index vectoriel
+     */
+    public CorpusSnapshot next(List<Document> chunks, Map<String, String> sourceTexts) {
+        return next(chunks, sourceTexts, true);
+    }
+
+    /**
+     * Instantané suivant ; vectorIndexReady = false tant que les embeddings sont en cours de calcul
+     */
+    public CorpusSnapshot next(List<Document> chunks, Map<String, String> sourceTexts, boolean vectorIndexReady) {
+        return new CorpusSnapshot(generation + 1, chunks, sourceTexts, vectorIndexReady);
+    }
+
+    /**
+     * Instantané suivant où un document est remplacé (chunks null : document supprimé)
+     */
+    public CorpusSnapshot withSource(String source, List<Document> sourceChunks, String sourceText) {
+        List<Document> nextChunks = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            if (!source.equals(chunk.getMetadata().get(IngestionPipeline.METADATA_SOURCE))) {
+                nextChunks.add(chunk);
+            }
+        }
+        Map<String, String> nextTexts = new TreeMap<>(sourceTexts);
+        if (sourceChunks == null) {
+            nextTexts.remove(source);
+        } else {
+            nextChunks.addAll(sourceChunks);
+            nextTexts.put(source, sourceText);
+        }
+        return next(nextChunks, nextTexts, vectorIndexReady);
+    }
+
+    public List<Document> chunksOf(String source) {
+        return chunks.stream()
+            .filter(chunk -> source.equals(chunk.getMetadata().get(IngestionPipeline.METADATA_SOURCE)))
+            .toList();
+    }
+
+    public List<Document> keywordSearch(String query, int maxResults) {
+        return keywordIndex.search(query, maxResults);
+    }
+
+    public long generation() {
+        return generation;
+    }
+
+    // Liste immuable : à lire telle quelle, jamais à copier
+    public List<Document> chunks() {
+        return chunks;
+    }
+
+    public String fullText() {
+        return fullText;
+    }
+
+    public Map<String, String> sourceTexts() {
+        return sourceTexts;
+    }
+
+    public KeywordIndex keywordIndex() {
+        return keywordIndex;
+    }
+
+    // false : seuls l'index mots-clés et le texte complet sont utilisables
+    public boolean vectorIndexReady() {
+        return vectorIndexReady;
+    }
+
+    public Instant builtAt() {
+        return builtAt;
+    }
+
+    // Les embeddings restent dans le VectorStore et l'index persistant : le corpus n'en garde pas de copie
+    private static List<Document> withoutEmbeddings(List<Document> chunks) {
+        List<Document> stripped = new ArrayList<>(chunks.size());
+        for (Document chunk : chunks) {
+            float[] embedding = chunk.getEmbedding();
+            stripped.add(embedding == null || embedding.length == 0
+                ? chunk
+                : new Document(chunk.getId(), chunk.getContent(), chunk.getMetadata()));
+        }
+        return List.copyOf(stripped);
+    }
+}
@@ -0,0 +1,195 @@
+package com.rayen.miniprojet.rag;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Surveille le répertoire des documents et ré-indexe uniquement les fichiers ajoutés,
+ * modifiés ou supprimés : les chunks sont comparés par identifiant (empreinte du contenu),
+ * seuls les nouveaux sont embeddés et ajoutés au VectorStore, les obsolètes en sont retirés.
+ * Un texte inchangé mais déplacé garde son vecteur ; seules ses métadonnées (chunk_index, page)
+ * sont mises à jour ({@link MetadataUpdate}, sinon suppression puis ajout).
+ * Le VectorStore est modifié avant la publication du nouveau corpus (index mots-clés) :
+ * un instantané publié ne désigne jamais des chunks absents de l'index vectoriel.
+ *
+ * Actif seulement pour un répertoire du système de fichiers (rag.docs.watch-directory),
+ * pas pour des documents servis depuis le classpath, et à partir de la fin de l'ingestion
+ * initiale (sinon sa publication finale écraserait les ré-indexations faites entre-temps),
+ * réussie ou non : après un échec, un document corrigé est ré-indexé.
+ */
+@Component
+@Slf4j
+public class DocsWatcher {
+
+    // Les éditeurs écrivent un fichier en plusieurs événements : on attend ce silence avant de traiter
+    private static final long QUIET_PERIOD_MS = 1000;
+
+    private final IngestionPipeline ingestionPipeline;
+    private final VectorStore vectorStore;
+    private final CorpusRegistry corpusRegistry;
+    private final String watchDirectory;
+
+    private volatile WatchService watchService;
+    private Thread watcherThread;
+
+    public DocsWatcher(IngestionPipeline ingestionPipeline, VectorStore vectorStore, CorpusRegistry corpusRegistry,
+                       @Value("${rag.docs.watch-directory:}") String watchDirectory) {
+        this.ingestionPipeline = ingestionPipeline;
+        this.vectorStore = vectorStore;
+        this.corpusRegistry = corpusRegistry;
+        this.watchDirectory = watchDirectory;
+    }
+
+    @EventListener({VectorIndexReadyEvent.class, CorpusBootstrapFailedEvent.class})
+    public void start() throws IOException {
+        if (watchDirectory.isBlank()) {
+            log.info("👁️ Surveillance des documents désactivée (rag.docs.watch-directory vide)");
+            return;
+        }
+        Path directory = Paths.get(watchDirectory).toAbsolutePath();
+        if (!Files.isDirectory(directory)) {
+            log.warn("⚠️ Répertoire de documents introuvable, surveillance désactivée : {}", directory);
+            return;
+        }
+
+        watchService = FileSystems.getDefault().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        watcherThread = Thread.ofPlatform().name("rag-docs-watcher").daemon().start(() -> watch(directory));
+        log.info("👁️ Surveillance des documents : {}", directory);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    private void watch(Path directory) {
+        try {
+            while (true) {
+                // Regroupe les événements jusqu'à un silence de QUIET_PERIOD_MS
+                Set<Path> changed = new LinkedHashSet<>();
+                WatchKey key = watchService.take();
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.context() instanceof Path file) {
+                            changed.add(directory.resolve(file));
+                        }
+                    }
+                    key.reset();
+                    key = watchService.poll(QUIET_PERIOD_MS, TimeUnit.MILLISECONDS);
+                }
+                for (Path file : changed) {
+                    apply(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.info("👁️ Surveillance des documents arrêtée");
+        }
+    }
+
+    /**
+     * Applique la modification d'un fichier au VectorStore et à l'index mots-clés
+     */
+    void apply(Path file) {
+        String source = file.getFileName().toString();
+        if (source.startsWith(".") || source.endsWith("~")) {
+            return; // fichiers temporaires d'éditeur
+        }
+        long start = System.nanoTime();
+        try {
+            // Seul écrivain après l'ingestion initiale : l'instantané courant reste valable jusqu'à la publication
+            List<Document> previous = corpusRegistry.current().chunksOf(source);
+            IngestionPipeline.Result result = null;
+            List<Document> current;
+            if (Files.isRegularFile(file)) {
+                result = ingestionPipeline.reindex(new FileSystemResource(file));
+                current = result.chunks();
+            } else {
+                ingestionPipeline.forget(source);
+                current = List.of();
+            }
+
+            // Différence par identifiant (= empreinte du contenu)
+            Map<String, Document> previousById = new HashMap<>();
+            previous.forEach(chunk -> previousById.put(chunk.getId(), chunk));
+            Set<String> currentIds = new HashSet<>();
+            current.forEach(chunk -> currentIds.add(chunk.getId()));
+
+            List<String> removed = previousById.keySet().stream().filter(id -> !currentIds.contains(id)).toList();
+            List<Document> added = new ArrayList<>();
+            List<Document> moved = new ArrayList<>();
+            for (Document chunk : current) {
+                Document before = previousById.get(chunk.getId());
+                if (before == null) {
+                    added.add(chunk);
+                } else if (!before.getMetadata().equals(chunk.getMetadata())) {
+                    moved.add(chunk);
+                }
+            }
+
+            if (!removed.isEmpty()) {
+                vectorStore.delete(removed);
+            }
+            if (!added.isEmpty()) {
+                vectorStore.add(added);
+            }
+            updateMetadata(moved);
+
+            if (result != null) {
+                corpusRegistry.replaceSource(source, current, result.fullText());
+            } else {
+                corpusRegistry.replaceSource(source, null, null);
+            }
+
+            log.info("🔁 {} ré-indexé en {} ms : +{} chunks, -{} chunks, {} déplacés, {} inchangés",
+                source, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                added.size(), removed.size(), moved.size(), current.size() - added.size() - moved.size());
+        } catch (Exception e) {
+            log.error("❌ Ré-indexation de {} échouée", source, e);
+        }
+    }
+
+    // Chunks inchangés mais déplacés : même vecteur, nouvelles métadonnées
+    private void updateMetadata(List<Document> moved) {
+        if (moved.isEmpty()) {
+            return;
+        }
+        if (vectorStore instanceof MetadataUpdate store) {
+            store.updateMetadata(moved);
+        } else {
+            vectorStore.delete(moved.stream().map(Document::getId).toList());
+            vectorStore.add(moved);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.rayen.miniprojet.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * VectorStore interrogeable avec l'embedding déjà calculé de la requête, par exemple quand
+ * tout un lot de questions est embeddé en un seul appel au modèle
+ */
+public interface EmbeddingSearch {
+
+    /**
+     * Même résultat que similaritySearch(SearchRequest) sans filtre, pour la requête d'embedding {@code query}
+     */
+    List<Document> similaritySearch(float[] query, int topK, double similarityThreshold);
+}
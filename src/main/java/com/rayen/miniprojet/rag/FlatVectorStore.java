@@ -0,0 +1,343 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * VectorStore à parcours exhaustif, remplaçant du SimpleVectorStore :
+ * - les vecteurs normalisés sont rangés ligne par ligne dans UN tableau primitif contigu
+ *   (float[] ou, en int8, byte[] + une échelle par ligne : 4x moins d'octets parcourus par requête) ;
+ * - les similarités sont calculées avec la Vector API (repli scalaire sinon) ;
+ * - les meilleurs candidats sont gardés dans un tas primitif (TopK) ;
+ * - en int8, les topK x RESCORE_FACTOR meilleurs candidats sont réévalués avec une copie fp16
+ *   du vecteur normalisé (similarité à ~1e-3 près) avant le seuil et la coupe finale.
+ *
+ * Les Documents rangés sont des copies sans embedding : le store ne retient que ses propres
+ * tableaux. Par dimension : 4 octets en float ; en int8, 1 octet parcouru par requête mais
+ * 3 octets en mémoire (codes + copie fp16), soit seulement ~1,33x moins que float : l'int8 accélère
+ * le parcours, il ne divise pas l'empreinte par 4. Les scores renvoyés sont ceux de la copie fp16
+ * (demi-précision), pas de l'embedding d'origine. Voir {@link #memoryBytes()} et {@link #scanBytes()}.
+ *
+ * Même sémantique que SimpleVectorStore : similarité cosinus, au plus topK résultats
+ * de similarité >= similarityThreshold, par similarité décroissante.
+ * Recherche filtrée non supportée : une SearchRequest avec filterExpression est refusée
+ * (UnsupportedOperationException) ; rag.vector-store.type=simple si des filtres sont nécessaires.
+ */
+@Slf4j
+public class FlatVectorStore implements VectorStore, EmbeddingSearch, MetadataUpdate {
+
+    public enum Quantization { NONE, INT8 }
+
+    // Candidats int8 réévalués sur la copie fp16 par résultat demandé
+    private static final int RESCORE_FACTOR = 4;
+    private static final int MIN_RESCORE_CANDIDATES = 32;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final EmbeddingModel embeddingModel;
+    private final Quantization quantization;
+    private final VectorMath math = VectorMath.get();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Lignes 0..size-1 ; une suppression déplace la dernière ligne dans le trou
+    private final Map<String, Integer> rowsById = new HashMap<>();
+    private Document[] documents = new Document[0];
+    private float[] vectors;
+    private byte[] codes;
+    private float[] scales;
+    private short[] halves;
+    private int dimensions;
+    private int size;
+
+    public FlatVectorStore(EmbeddingModel embeddingModel, Quantization quantization) {
+        this.embeddingModel = embeddingModel;
+        this.quantization = quantization;
+    }
+
+    @Override
+    public void add(List<Document> newDocuments) {
+        // Embeddings calculés hors verrou (appel au modèle si le chunk n'en a pas encore)
+        List<float[]> embeddings = new ArrayList<>(newDocuments.size());
+        for (Document document : newDocuments) {
+            float[] embedding = document.getEmbedding();
+            if (embedding == null || embedding.length == 0) {
+                embedding = embeddingModel.embed(document);
+                document.setEmbedding(embedding);
+            }
+            embeddings.add(embedding);
+        }
+
+        lock.writeLock().lock();
+        try {
+            // Lot entier vérifié avant la première écriture : pas d'insertion partielle
+            int expected = dimensions != 0 || embeddings.isEmpty() ? dimensions : embeddings.get(0).length;
+            for (int i = 0; i < embeddings.size(); i++) {
+                if (embeddings.get(i).length != expected) {
+                    throw new IllegalArgumentException("Dimension d'embedding " + embeddings.get(i).length
+                        + " pour " + newDocuments.get(i).getId() + ", attendu " + expected);
+                }
+            }
+            dimensions = expected;
+
+            for (int i = 0; i < newDocuments.size(); i++) {
+                Document document = newDocuments.get(i);
+                float[] embedding = embeddings.get(i);
+                Integer existing = rowsById.get(document.getId());
+                int row = existing != null ? existing : size;
+                if (existing == null) {
+                    ensureCapacity(size + 1);
+                    rowsById.put(document.getId(), row);
+                    size++;
+                }
+                write(row, document, embedding);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.debug("🧮 FlatVectorStore : {} vecteurs ({} Mo)", size(), memoryBytes() / (1024 * 1024));
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> ids) {
+        lock.writeLock().lock();
+        try {
+            boolean removed = false;
+            for (String id : ids) {
+                Integer row = rowsById.remove(id);
+                if (row == null) {
+                    continue;
+                }
+                int last = --size;
+                if (row != last) {
+                    move(last, row);
+                    rowsById.put(documents[row].getId(), row);
+                }
+                documents[last] = null;
+                removed = true;
+            }
+            return Optional.of(removed);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateMetadata(List<Document> updated) {
+        lock.writeLock().lock();
+        try {
+            int count = 0;
+            for (Document document : updated) {
+                Integer row = rowsById.get(document.getId());
+                if (row != null) {
+                    documents[row] = new Document(document.getId(), document.getContent(), document.getMetadata());
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.getFilterExpression() != null) {
+            throw new UnsupportedOperationException("Filtres de métadonnées non supportés par FlatVectorStore");
+        }
+        return similaritySearch(embeddingModel.embed(request.getQuery()), request.getTopK(),
+            request.getSimilarityThreshold());
+    }
+
+    @Override
+    public List<Document> similaritySearch(float[] query, int topK, double similarityThreshold) {
+        float queryNorm = norm(query);
+        if (queryNorm == 0) {
+            return List.of();
+        }
+        float[] normalizedQuery = scaled(query, 1 / queryNorm);
+        float threshold = (float) similarityThreshold;
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || topK <= 0) {
+                return List.of();
+            }
+            if (query.length != dimensions) {
+                throw new IllegalArgumentException("Requête de dimension " + query.length + ", index en " + dimensions);
+            }
+
+            TopK best;
+            if (quantization == Quantization.INT8) {
+                int candidates = Math.min(size, Math.max(topK * RESCORE_FACTOR, MIN_RESCORE_CANDIDATES));
+                int[] rows = scanInt8(normalizedQuery, candidates);
+                best = new TopK(topK);
+                for (int row : rows) {
+                    float similarity = exactSimilarity(normalizedQuery, row);
+                    if (similarity >= threshold) {
+                        best.offer(similarity, row);
+                    }
+                }
+            } else {
+                best = scanFloat(normalizedQuery, topK, threshold);
+            }
+
+            int[] rows = best.drainDescending(null);
+            List<Document> results = new ArrayList<>(rows.length);
+            for (int row : rows) {
+                results.add(documents[row]);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Mémoire occupée par tous les vecteurs du store (en int8 : codes, échelles et copie fp16)
+     */
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            long perRow = quantization == Quantization.INT8
+                ? (long) dimensions * (1 + Short.BYTES) + Float.BYTES
+                : (long) dimensions * Float.BYTES;
+            return perRow * size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Part de {@link #memoryBytes()} parcourue par chaque requête
+     */
+    public long scanBytes() {
+        lock.readLock().lock();
+        try {
+            long perRow = quantization == Quantization.INT8
+                ? (long) dimensions + Float.BYTES
+                : (long) dimensions * Float.BYTES;
+            return perRow * size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Quantization quantization() {
+        return quantization;
+    }
+
+    private TopK scanFloat(float[] query, int topK, float threshold) {
+        TopK best = new TopK(topK);
+        for (int row = 0, offset = 0; row < size; row++, offset += dimensions) {
+            float similarity = math.dot(query, 0, vectors, offset, dimensions);
+            if (similarity >= threshold) {
+                best.offer(similarity, row);
+            }
+        }
+        return best;
+    }
+
+    // Similarité approchée (codes int8 x échelle de la ligne) : ne sert qu'à présélectionner
+    private int[] scanInt8(float[] query, int candidates) {
+        TopK best = new TopK(candidates);
+        for (int row = 0, offset = 0; row < size; row++, offset += dimensions) {
+            float approximate = math.dotInt8(query, codes, offset, dimensions) * scales[row];
+            best.offer(approximate, row);
+        }
+        return best.drainDescending(null);
+    }
+
+    // Réévaluation d'un candidat int8 sur sa copie fp16 (quelques dizaines de lignes par requête)
+    private float exactSimilarity(float[] normalizedQuery, int row) {
+        float similarity = 0;
+        for (int i = 0, offset = row * dimensions; i < dimensions; i++) {
+            similarity += normalizedQuery[i] * Float.float16ToFloat(halves[offset + i]);
+        }
+        return similarity;
+    }
+
+    private void write(int row, Document document, float[] embedding) {
+        float norm = norm(embedding);
+        float inverse = norm == 0 ? 0 : 1 / norm;
+        // Copie sans embedding : le float[] d'origine n'est pas retenu par le store
+        documents[row] = new Document(document.getId(), document.getContent(), document.getMetadata());
+        int offset = row * dimensions;
+        if (quantization == Quantization.INT8) {
+            // Quantification symétrique par ligne : la plus grande composante devient ±127
+            float maxAbs = 0;
+            for (float value : embedding) {
+                maxAbs = Math.max(maxAbs, Math.abs(value * inverse));
+            }
+            float scale = maxAbs == 0 ? 0 : maxAbs / 127;
+            scales[row] = scale;
+            for (int i = 0; i < dimensions; i++) {
+                codes[offset + i] = scale == 0 ? 0 : (byte) Math.round(embedding[i] * inverse / scale);
+                halves[offset + i] = Float.floatToFloat16(embedding[i] * inverse);
+            }
+        } else {
+            for (int i = 0; i < dimensions; i++) {
+                vectors[offset + i] = embedding[i] * inverse;
+            }
+        }
+    }
+
+    private void move(int from, int to) {
+        documents[to] = documents[from];
+        if (quantization == Quantization.INT8) {
+            scales[to] = scales[from];
+            System.arraycopy(codes, from * dimensions, codes, to * dimensions, dimensions);
+            System.arraycopy(halves, from * dimensions, halves, to * dimensions, dimensions);
+        } else {
+            System.arraycopy(vectors, from * dimensions, vectors, to * dimensions, dimensions);
+        }
+    }
+
+    private void ensureCapacity(int rows) {
+        if (rows <= documents.length) {
+            return;
+        }
+        int capacity = Math.max(INITIAL_CAPACITY, Math.max(rows, documents.length + (documents.length >> 1)));
+        if ((long) capacity * dimensions > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("FlatVectorStore plein : " + size + " vecteurs de dimension " + dimensions);
+        }
+        documents = Arrays.copyOf(documents, capacity);
+        if (quantization == Quantization.INT8) {
+            codes = codes == null ? new byte[capacity * dimensions] : Arrays.copyOf(codes, capacity * dimensions);
+            halves = halves == null ? new short[capacity * dimensions] : Arrays.copyOf(halves, capacity * dimensions);
+            scales = scales == null ? new float[capacity] : Arrays.copyOf(scales, capacity);
+        } else {
+            vectors = vectors == null ? new float[capacity * dimensions] : Arrays.copyOf(vectors, capacity * dimensions);
+        }
+    }
+
+    private float norm(float[] vector) {
+        return (float) Math.sqrt(math.dot(vector, 0, vector, 0, vector.length));
+    }
+
+    private static float[] scaled(float[] vector, float factor) {
+        float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i] * factor;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+package com.rayen.miniprojet.rag;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Tokenisation adaptée au français pour la recherche par mots-clés :
+ * minuscules, suppression des accents (é → e, œ → oe), élisions (l', d', qu'),
+ * mots vides, pluriels simples, et conservation des nombres décimaux / numéros
+ * de section ("1.2", "1,2" → "1.2").
+ */
+public final class FrenchAnalyzer {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+
+    // Mots vides (déjà sans accents)
+    private static final Set<String> STOP_WORDS = Set.of(
+        "au", "aux", "avec", "ce", "ces", "cet", "cette", "dans", "de", "des", "du", "elle", "elles",
+        "en", "est", "et", "etre", "il", "ils", "je", "la", "le", "les", "leur", "leurs", "lui", "ma",
+        "mais", "me", "mes", "mon", "ne", "nos", "notre", "nous", "on", "ou", "par", "pas", "pour",
+        "qu", "que", "quel", "quelle", "quelles", "quels", "qui", "sa", "se", "ses", "son", "sont",
+        "sur", "ta", "te", "tes", "ton", "tu", "un", "une", "vos", "votre", "vous", "comment",
+        "combien", "quoi", "peut", "doit", "faut");
+
+    private FrenchAnalyzer() {
+    }
+
+    /**
+     * Découpe un texte en termes normalisés
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+
+        String folded = fold(text);
+        int length = folded.length();
+        StringBuilder current = new StringBuilder();
+
+        for (int i = 0; i < length; i++) {
+            char c = folded.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                current.append(c);
+            } else if ((c == '.' || c == ',') && isDigitAt(folded, i - 1) && isDigitAt(folded, i + 1)) {
+                // Nombre décimal ou numéro de section
+                current.append('.');
+            } else {
+                emit(current, tokens);
+            }
+        }
+        emit(current, tokens);
+        return tokens;
+    }
+
+    /**
+     * Minuscules + suppression des accents et ligatures
+     */
+    public static String fold(String text) {
+        String lower = text.toLowerCase().replace("œ", "oe").replace("æ", "ae");
+        if (lower.chars().allMatch(c -> c < 0x80)) {
+            return lower; // ASCII pur : rien à replier
+        }
+        return COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+    }
+
+    private static void emit(StringBuilder current, List<String> tokens) {
+        if (current.isEmpty()) {
+            return;
+        }
+        String token = current.toString();
+        current.setLength(0);
+
+        if (Character.isDigit(token.charAt(0))) {
+            tokens.add(token);
+            return;
+        }
+        if (token.length() < 2 || STOP_WORDS.contains(token)) {
+            return;
+        }
+        tokens.add(stem(token));
+    }
+
+    // Pluriels simples : "retours" → "retour", "delais" → "delai", "articles" → "article"
+    private static String stem(String token) {
+        int length = token.length();
+        if (length > 3 && (token.charAt(length - 1) == 's' || token.charAt(length - 1) == 'x')) {
+            return token.substring(0, length - 1);
+        }
+        return token;
+    }
+
+    private static boolean isDigitAt(String text, int index) {
+        return index >= 0 && index < text.length() && Character.isDigit(text.charAt(index));
+    }
+}
@@ -0,0 +1,762 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * VectorStore approximatif HNSW (Hierarchical Navigable Small World, Malkov & Yashunin)
+ * pour les gros corpus, où même un parcours exhaustif SIMD devient trop lent.
+ *
+ * - Construction incrémentale : chaque add() insère ses chunks dans le graphe, depuis
+ *   plusieurs threads à la fois (ex. pendant l'embedding des lots suivants).
+ * - Écritures : un verrou par nœud, seulement le temps de remplacer sa liste de voisins.
+ * - Lectures sans verrou : l'état du graphe (pages, point d'entrée, index des ids) est publié par
+ *   une seule référence, lue une fois par recherche ; les listes de voisins sont des tableaux immuables
+ *   publiés atomiquement, une recherche voit chaque liste avant ou après une insertion, jamais entre les deux.
+ * - Suppression par pierre tombale : le nœud reste dans le graphe pour la navigation mais
+ *   n'est plus renvoyé. Au-delà de COMPACTION_RATIO des nœuds, le graphe est reconstruit en
+ *   arrière-plan sans eux puis substitué par compareAndSet (les recherches continuent sur l'ancien entre-temps).
+ * - Les Documents rangés sont des copies sans embedding : le vecteur n'est gardé qu'une fois, dans le nœud,
+ *   et le Document de l'appelant n'est pas modifié.
+ *
+ * Réglages : m (voisins par nœud, 2m au niveau 0), efConstruction (qualité du graphe),
+ * efSearch (candidats explorés par requête : précision contre latence).
+ *
+ * Recherche filtrée non supportée : une SearchRequest avec filterExpression est refusée
+ * (UnsupportedOperationException) ; rag.vector-store.type=simple si des filtres sont nécessaires.
+ */
+@Slf4j
+public class HnswVectorStore implements VectorStore, EmbeddingSearch, MetadataUpdate {
+
+    private static final int PAGE_BITS = 12;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MAX_LEVEL = 16;
+    // En dessous, un add() insère dans le thread appelant
+    private static final int PARALLEL_INSERT_THRESHOLD = 256;
+    // Compactage dès que les pierres tombales dépassent cette part des nœuds (et ce nombre)
+    private static final double COMPACTION_RATIO = 0.2;
+    private static final int MIN_TOMBSTONES_FOR_COMPACTION = 128;
+
+    private final EmbeddingModel embeddingModel;
+    private final int m;
+    private final int maxNeighborsLayer0;
+    private final int efConstruction;
+    private final int efSearch;
+    private final double levelMultiplier;
+    private final VectorMath math = VectorMath.get();
+
+    // Graphe servi ; remplacé en bloc par le compactage, jamais modifié par les recherches
+    private final AtomicReference<Graph> graph = new AtomicReference<>(new Graph());
+    private final Object growLock = new Object();
+    private final Object entryLock = new Object();
+    private volatile int dimensions;
+
+    private final AtomicLong insertNanos = new AtomicLong();
+    private final AtomicLong firstInsertAt = new AtomicLong();
+    private final AtomicLong lastInsertAt = new AtomicLong();
+
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    // Partagé : modifications ; exclusif : début et fin d'un compactage. Les recherches n'en prennent aucun
+    private final ReentrantReadWriteLock mutationLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    // Modifications reçues pendant un compactage, rejouées sur le nouveau graphe (null sinon)
+    private volatile List<Consumer<HnswVectorStore>> compactionLog;
+    private boolean autoCompact = true;
+
+    public HnswVectorStore(EmbeddingModel embeddingModel, int m, int efConstruction, int efSearch) {
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("HNSW : m >= 2, efConstruction >= 1 et efSearch >= 1 requis");
+        }
+        this.embeddingModel = embeddingModel;
+        this.m = m;
+        this.maxNeighborsLayer0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    @Override
+    public void add(List<Document> documents) {
+        List<Entry> entries = new ArrayList<>(documents.size());
+        for (Document document : documents) {
+            float[] embedding = document.getEmbedding();
+            if (embedding == null || embedding.length == 0) {
+                embedding = embeddingModel.embed(document);
+            }
+            checkDimensions(embedding.length, document.getId());
+            // Copie sans embedding : le Document d'origine n'est ni modifié ni retenu
+            entries.add(new Entry(new Document(document.getId(), document.getContent(), document.getMetadata()), embedding));
+        }
+        insertAll(List.copyOf(entries));
+        compactIfNeeded(); // un id déjà présent laisse une pierre tombale
+    }
+
+    private void insertAll(List<Entry> entries) {
+        mutationLock.readLock().lock();
+        try {
+            Graph current = graph.get();
+            long start = System.nanoTime();
+            firstInsertAt.compareAndSet(0, start);
+            if (entries.size() >= PARALLEL_INSERT_THRESHOLD) {
+                entries.parallelStream().forEach(entry -> insert(current, entry));
+            } else {
+                entries.forEach(entry -> insert(current, entry));
+            }
+            long end = System.nanoTime();
+            insertNanos.addAndGet(end - start);
+            lastInsertAt.accumulateAndGet(end, Math::max);
+            logForCompaction(store -> store.insertAll(entries));
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Boolean> delete(List<String> ids) {
+        boolean removed = false;
+        mutationLock.readLock().lock();
+        try {
+            Graph current = graph.get();
+            for (String id : ids) {
+                Integer index = current.nodesById.remove(id);
+                if (index != null) {
+                    markDeleted(current, index);
+                    removed = true;
+                }
+            }
+            List<String> deleted = List.copyOf(ids);
+            logForCompaction(store -> store.delete(deleted));
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        compactIfNeeded();
+        return Optional.of(removed);
+    }
+
+    // Le nœud garde sa place et ses voisins : seul son Document est remplacé
+    @Override
+    public int updateMetadata(List<Document> documents) {
+        List<Document> copies = documents.stream()
+            .map(document -> new Document(document.getId(), document.getContent(), document.getMetadata()))
+            .toList();
+        int updated = 0;
+        mutationLock.readLock().lock();
+        try {
+            Graph current = graph.get();
+            for (Document copy : copies) {
+                Integer index = current.nodesById.get(copy.getId());
+                if (index != null) {
+                    current.node(index).document = copy;
+                    updated++;
+                }
+            }
+            logForCompaction(store -> store.updateMetadata(copies));
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Document> similaritySearch(SearchRequest request) {
+        if (request.getFilterExpression() != null) {
+            throw new UnsupportedOperationException("Filtres de métadonnées non supportés par HnswVectorStore");
+        }
+        return similaritySearch(embeddingModel.embed(request.getQuery()), request.getTopK(),
+            request.getSimilarityThreshold());
+    }
+
+    @Override
+    public List<Document> similaritySearch(float[] query, int topK, double similarityThreshold) {
+        // Une seule lecture de la référence : toute la recherche se fait sur le même graphe
+        Graph current = graph.get();
+        EntryPoint entry = current.entryPoint;
+        if (topK <= 0 || entry == null) {
+            return List.of();
+        }
+        if (query.length != dimensions) {
+            throw new IllegalArgumentException("Requête de dimension " + query.length + ", index en " + dimensions);
+        }
+
+        float threshold = (float) similarityThreshold;
+        Candidates found = search(current, entry, query, inverseNorm(query), Math.max(efSearch, topK));
+        List<Document> results = new ArrayList<>(topK);
+        for (int i = 0; i < found.ids().length && results.size() < topK; i++) {
+            Node node = current.node(found.ids()[i]);
+            if (!node.deleted && found.scores()[i] >= threshold) {
+                results.add(node.document);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Reconstruit le graphe avec les seuls nœuds vivants. Le graphe actuel sert les recherches
+     * pendant la construction ; les modifications reçues entre-temps sont rejouées sur le
+     * nouveau avant le remplacement (seule étape qui bloque les écritures, jamais les recherches).
+     *
+     * @return false si un compactage est déjà en cours
+     */
+    public boolean compact() {
+        if (!compacting.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            rebuild();
+            return true;
+        } finally {
+            compacting.set(false);
+        }
+    }
+
+    private void rebuild() {
+        long start = System.nanoTime();
+        List<Entry> live = new ArrayList<>();
+        Graph old;
+        int tombstones;
+        mutationLock.writeLock().lock();
+        try {
+            old = graph.get();
+            for (int i = 0, count = old.nodeCount.get(); i < count; i++) {
+                Node node = old.node(i);
+                if (node != null && !node.deleted) {
+                    live.add(new Entry(node.document, node.vector));
+                }
+            }
+            tombstones = old.deletedCount.get();
+            compactionLog = Collections.synchronizedList(new ArrayList<>());
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+
+        HnswVectorStore rebuilt = new HnswVectorStore(embeddingModel, m, efConstruction, efSearch);
+        rebuilt.autoCompact = false;
+        rebuilt.dimensions = dimensions;
+        try {
+            rebuilt.insertAll(live);
+        } catch (RuntimeException e) {
+            compactionLog = null;
+            throw e;
+        }
+
+        mutationLock.writeLock().lock();
+        try {
+            List<Consumer<HnswVectorStore>> pending = compactionLog;
+            compactionLog = null;
+            pending.forEach(operation -> operation.accept(rebuilt));
+            Graph replacement = rebuilt.graph.get();
+            if (!graph.compareAndSet(old, replacement)) {
+                throw new IllegalStateException("Graphe HNSW remplacé pendant le compactage");
+            }
+            log.info("🕸️ HNSW compacté en {} ms : {} pierres tombales retirées, {} nœuds ({} modifications rejouées)",
+                (System.nanoTime() - start) / 1_000_000, tombstones, replacement.nodesById.size(), pending.size());
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+    }
+
+    private void compactIfNeeded() {
+        Graph current = graph.get();
+        int tombstones = current.deletedCount.get();
+        if (autoCompact && tombstones >= MIN_TOMBSTONES_FOR_COMPACTION && tombstones > current.nodeCount.get() * COMPACTION_RATIO
+                && compacting.compareAndSet(false, true)) {
+            Thread.ofPlatform().name("hnsw-compaction").daemon().start(() -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException e) {
+                    log.error("❌ Compactage HNSW échoué, le graphe actuel reste servi", e);
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    // Appelé sous le verrou partagé : visible du compactage qui le rejouera
+    private void logForCompaction(Consumer<HnswVectorStore> operation) {
+        List<Consumer<HnswVectorStore>> pending = compactionLog;
+        if (pending != null) {
+            pending.add(operation);
+        }
+    }
+
+    /**
+     * Taille et coût du graphe ; memoryBytes estime les nœuds et listes de voisins,
+     * vectorBytes les vecteurs des nœuds (seule copie gardée, les Documents rangés n'en portent pas)
+     */
+    public Stats stats() {
+        Graph current = graph.get();
+        int count = current.nodeCount.get();
+        int deleted = current.deletedCount.get();
+        long memory = 0;
+        int maxLevel = 0;
+        for (int i = 0; i < count; i++) {
+            Node node = current.node(i);
+            if (node == null) {
+                continue;
+            }
+            maxLevel = Math.max(maxLevel, node.level);
+            memory += 48 + 16 + 4L * node.neighbors.length();
+            for (int level = 0; level <= node.level; level++) {
+                memory += 16 + 4L * node.neighbors.get(level).length;
+            }
+        }
+        memory += 32L * current.nodesById.size() + (long) current.pages.length * (16 + 4L * PAGE_SIZE);
+        long vectorBytes = (long) count * dimensions * Float.BYTES;
+        long buildNanos = lastInsertAt.get() - firstInsertAt.get();
+        return new Stats(count - deleted, deleted, maxLevel, memory, vectorBytes,
+            buildNanos / 1_000_000, insertNanos.get() / 1_000_000, m, efConstruction, efSearch);
+    }
+
+    /**
+     * Rappel@k mesuré contre la recherche exacte, sur des requêtes synthétiques
+     * (milieu normalisé de deux chunks tirés au hasard, graine fixe)
+     */
+    public double recall(int queries, int k) {
+        Graph current = graph.get();
+        int count = current.nodeCount.get();
+        if (count - current.deletedCount.get() <= k) {
+            return 1.0;
+        }
+        Random random = new Random(42);
+        double total = 0;
+        int measured = 0;
+        for (int q = 0; q < queries; q++) {
+            Node a = current.node(random.nextInt(count));
+            Node b = current.node(random.nextInt(count));
+            if (a == null || b == null) {
+                continue; // insertion en cours
+            }
+            float[] query = new float[dimensions];
+            for (int i = 0; i < dimensions; i++) {
+                query[i] = a.vector[i] * a.inverseNorm + b.vector[i] * b.inverseNorm;
+            }
+            float inverse = inverseNorm(query);
+            if (inverse == 0) {
+                continue;
+            }
+
+            TopK exact = new TopK(k);
+            for (int i = 0; i < count; i++) {
+                Node node = current.node(i);
+                if (node != null && !node.deleted) {
+                    exact.offer(similarity(query, inverse, node), i);
+                }
+            }
+            int[] expected = exact.drainDescending(null);
+
+            Candidates found = search(current, current.entryPoint, query, inverse, Math.max(efSearch, k));
+            int hits = 0;
+            int returned = 0;
+            for (int i = 0; i < found.ids().length && returned < k; i++) {
+                if (current.node(found.ids()[i]).deleted) {
+                    continue;
+                }
+                returned++;
+                for (int id : expected) {
+                    if (id == found.ids()[i]) {
+                        hits++;
+                        break;
+                    }
+                }
+            }
+            total += hits / (double) expected.length;
+            measured++;
+        }
+        return measured == 0 ? 1.0 : total / measured;
+    }
+
+    private void insert(Graph graph, Entry added) {
+        float[] vector = added.vector();
+        float inverse = inverseNorm(vector);
+        int level = randomLevel();
+        int index = graph.nodeCount.getAndIncrement();
+        ensurePage(graph, index);
+        Node node = new Node(added.document(), vector, inverse, level);
+        // Nœud rangé avant d'être rendu atteignable (entrée ou liste de voisins publiée ensuite)
+        graph.pages[index >>> PAGE_BITS][index & PAGE_MASK] = node;
+
+        Integer previous = graph.nodesById.put(added.document().getId(), index);
+        if (previous != null) {
+            markDeleted(graph, previous);
+        }
+
+        EntryPoint entry = graph.entryPoint;
+        if (entry == null) {
+            synchronized (entryLock) {
+                if (graph.entryPoint == null) {
+                    graph.entryPoint = new EntryPoint(index, level);
+                    return;
+                }
+                entry = graph.entryPoint;
+            }
+        }
+
+        int current = greedy(graph, vector, inverse, entry.node(), entry.level(), level);
+        int[] entries = {current};
+        for (int layer = Math.min(level, entry.level()); layer >= 0; layer--) {
+            Candidates candidates = searchLayer(graph, vector, inverse, entries, efConstruction, layer);
+            int maxNeighbors = layer == 0 ? maxNeighborsLayer0 : m;
+            int[] selected = selectNeighbors(graph, vector, inverse, candidates.ids(), candidates.scores(), m, index);
+            connect(graph, node, layer, selected, maxNeighbors);
+            for (int neighbor : selected) {
+                connect(graph, graph.node(neighbor), layer, new int[]{index}, maxNeighbors);
+            }
+            entries = candidates.ids();
+        }
+
+        if (level > entry.level()) {
+            synchronized (entryLock) {
+                if (level > graph.entryPoint.level()) {
+                    graph.entryPoint = new EntryPoint(index, level);
+                }
+            }
+        }
+    }
+
+    // Descente gloutonne des niveaux hauts jusqu'au niveau stopLevel (exclu)
+    private int greedy(Graph graph, float[] query, float inverse, int start, int fromLevel, int stopLevel) {
+        int current = start;
+        float currentScore = similarity(query, inverse, graph.node(current));
+        for (int layer = fromLevel; layer > stopLevel; layer--) {
+            boolean improved = true;
+            while (improved) {
+                improved = false;
+                for (int neighbor : graph.node(current).neighbors.get(layer)) {
+                    float score = similarity(query, inverse, graph.node(neighbor));
+                    if (score > currentScore) {
+                        current = neighbor;
+                        currentScore = score;
+                        improved = true;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+    private Candidates search(Graph graph, EntryPoint entry, float[] query, float inverse, int ef) {
+        int start = greedy(graph, query, inverse, entry.node(), entry.level(), 0);
+        return searchLayer(graph, query, inverse, new int[]{start}, ef, 0);
+    }
+
+    // Meilleur d'abord sur un niveau : les ef meilleurs nœuds atteints, par similarité décroissante
+    private Candidates searchLayer(Graph graph, float[] query, float inverse, int[] entries, int ef, int layer) {
+        Visited seen = visited.get();
+        seen.reset(graph.nodeCount.get());
+        CandidateQueue candidates = new CandidateQueue();
+        TopK results = new TopK(ef);
+        for (int entry : entries) {
+            if (seen.visit(entry)) {
+                float score = similarity(query, inverse, graph.node(entry));
+                candidates.push(score, entry);
+                results.offer(score, entry);
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            if (results.isFull() && candidates.peekScore() < results.minScore()) {
+                break;
+            }
+            int current = candidates.pop();
+            for (int neighbor : graph.node(current).neighbors.get(layer)) {
+                if (!seen.visit(neighbor)) {
+                    continue;
+                }
+                float score = similarity(query, inverse, graph.node(neighbor));
+                if (!results.isFull() || score > results.minScore()) {
+                    candidates.push(score, neighbor);
+                    results.offer(score, neighbor);
+                }
+            }
+        }
+
+        float[] scores = new float[results.size()];
+        int[] ids = results.drainDescending(scores);
+        return new Candidates(ids, scores);
+    }
+
+    /**
+     * Heuristique de sélection : un candidat n'est gardé que s'il est plus proche de la cible
+     * que de tous les voisins déjà retenus (répartit les liens dans toutes les directions),
+     * puis les écartés complètent jusqu'à {@code count}
+     */
+    private int[] selectNeighbors(Graph graph, float[] target, float inverse, int[] ids, float[] scores, int count, int self) {
+        int[] selected = new int[count];
+        int size = 0;
+        int[] pruned = new int[ids.length];
+        int prunedSize = 0;
+        for (int i = 0; i < ids.length && size < count; i++) {
+            if (ids[i] == self) {
+                continue;
+            }
+            Node candidate = graph.node(ids[i]);
+            boolean keep = true;
+            for (int j = 0; j < size; j++) {
+                if (similarity(candidate, graph.node(selected[j])) > scores[i]) {
+                    keep = false;
+                    break;
+                }
+            }
+            if (keep) {
+                selected[size++] = ids[i];
+            } else {
+                pruned[prunedSize++] = ids[i];
+            }
+        }
+        for (int i = 0; i < prunedSize && size < count; i++) {
+            selected[size++] = pruned[i];
+        }
+        return Arrays.copyOf(selected, size);
+    }
+
+    // Ajoute des voisins à un nœud ; au-delà de maxNeighbors, la liste est re-sélectionnée
+    private void connect(Graph graph, Node node, int layer, int[] added, int maxNeighbors) {
+        synchronized (node) {
+            int[] current = node.neighbors.get(layer);
+            int[] merged = Arrays.copyOf(current, current.length + added.length);
+            int size = current.length;
+            for (int id : added) {
+                if (!contains(merged, size, id)) {
+                    merged[size++] = id;
+                }
+            }
+            if (size == current.length) {
+                return;
+            }
+            if (size > maxNeighbors) {
+                TopK ranked = new TopK(size);
+                for (int i = 0; i < size; i++) {
+                    ranked.offer(similarity(node, graph.node(merged[i])), merged[i]);
+                }
+                float[] scores = new float[size];
+                int[] ids = ranked.drainDescending(scores);
+                merged = selectNeighbors(graph, node.vector, node.inverseNorm, ids, scores, maxNeighbors, -1);
+            } else {
+                merged = Arrays.copyOf(merged, size);
+            }
+            node.neighbors.set(layer, merged);
+        }
+    }
+
+    private static void markDeleted(Graph graph, int index) {
+        Node node = graph.node(index);
+        if (!node.deleted) {
+            node.deleted = true;
+            graph.deletedCount.incrementAndGet();
+        }
+    }
+
+    private void checkDimensions(int length, String id) {
+        if (dimensions == 0) {
+            synchronized (entryLock) {
+                if (dimensions == 0) {
+                    dimensions = length;
+                }
+            }
+        }
+        if (length != dimensions) {
+            throw new IllegalArgumentException("Dimension d'embedding " + length + " pour " + id + ", attendu " + dimensions);
+        }
+    }
+
+    private void ensurePage(Graph graph, int index) {
+        int page = index >>> PAGE_BITS;
+        if (page < graph.pages.length) {
+            return;
+        }
+        synchronized (growLock) {
+            Node[][] current = graph.pages;
+            if (page < current.length) {
+                return;
+            }
+            Node[][] grown = Arrays.copyOf(current, Math.max(page + 1, current.length * 2));
+            for (int i = current.length; i < grown.length; i++) {
+                grown[i] = new Node[PAGE_SIZE];
+            }
+            graph.pages = grown;
+        }
+    }
+
+    private int randomLevel() {
+        double uniform = 1 - ThreadLocalRandom.current().nextDouble();
+        return Math.min((int) (-Math.log(uniform) * levelMultiplier), MAX_LEVEL);
+    }
+
+    private float similarity(float[] query, float inverse, Node node) {
+        return math.dot(query, 0, node.vector, 0, dimensions) * inverse * node.inverseNorm;
+    }
+
+    private float similarity(Node a, Node b) {
+        return similarity(a.vector, a.inverseNorm, b);
+    }
+
+    private float inverseNorm(float[] vector) {
+        float norm = (float) Math.sqrt(math.dot(vector, 0, vector, 0, vector.length));
+        return norm == 0 ? 0 : 1 / norm;
+    }
+
+    private static boolean contains(int[] values, int size, int value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public record Stats(int nodes, int deleted, int maxLevel, long memoryBytes, long vectorBytes,
+                        long buildMillis, long insertMillis, int m, int efConstruction, int efSearch) {}
+
+    private record EntryPoint(int node, int level) {}
+
+    // Document rangé (sans embedding) et son vecteur, tels qu'insérés puis rejoués au compactage
+    private record Entry(Document document, float[] vector) {}
+
+    private record Candidates(int[] ids, float[] scores) {}
+
+    // État d'un graphe : une recherche lit la référence une fois et n'en voit jamais deux mélangés
+    private static final class Graph {
+        // Nœuds rangés par pages fixes : une page n'est jamais recopiée, seul l'index des pages grandit
+        volatile Node[][] pages = new Node[0][];
+        final AtomicInteger nodeCount = new AtomicInteger();
+        final AtomicInteger deletedCount = new AtomicInteger();
+        final ConcurrentHashMap<String, Integer> nodesById = new ConcurrentHashMap<>();
+        volatile EntryPoint entryPoint;
+
+        Node node(int index) {
+            return pages[index >>> PAGE_BITS][index & PAGE_MASK];
+        }
+    }
+
+    private static final class Node {
+        volatile Document document;
+        final float[] vector;
+        final float inverseNorm;
+        final int level;
+        // Une liste de voisins par niveau, remplacée en bloc (jamais modifiée sur place)
+        final AtomicReferenceArray<int[]> neighbors;
+        volatile boolean deleted;
+
+        Node(Document document, float[] vector, float inverseNorm, int level) {
+            this.document = document;
+            this.vector = vector;
+            this.inverseNorm = inverseNorm;
+            this.level = level;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int i = 0; i <= level; i++) {
+                neighbors.set(i, new int[0]);
+            }
+        }
+    }
+
+    // Marquage des nœuds visités par génération : pas de remise à zéro entre deux recherches
+    private static final class Visited {
+        private int[] marks = new int[1024];
+        private int generation;
+
+        void reset(int capacity) {
+            if (marks.length < capacity) {
+                marks = new int[capacity + (capacity >> 1)];
+                generation = 0;
+            }
+            if (++generation == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                generation = 1;
+            }
+        }
+
+        // true si le nœud n'avait pas encore été visité
+        boolean visit(int id) {
+            if (id >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(id + 1, marks.length * 2));
+            }
+            if (marks[id] == generation) {
+                return false;
+            }
+            marks[id] = generation;
+            return true;
+        }
+    }
+
+    // Tas max des candidats à explorer (le plus similaire d'abord)
+    private static final class CandidateQueue {
+        private float[] scores = new float[64];
+        private int[] ids = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekScore() {
+            return scores[0];
+        }
+
+        void push(float score, int id) {
+            if (size == scores.length) {
+                scores = Arrays.copyOf(scores, size * 2);
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            int index = size++;
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (scores[parent] >= score) {
+                    break;
+                }
+                scores[index] = scores[parent];
+                ids[index] = ids[parent];
+                index = parent;
+            }
+            scores[index] = score;
+            ids[index] = id;
+        }
+
+        int pop() {
+            int top = ids[0];
+            size--;
+            float score = scores[size];
+            int id = ids[size];
+            int index = 0;
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && scores[child + 1] > scores[child]) {
+                    child++;
+                }
+                if (scores[child] <= score) {
+                    break;
+                }
+                scores[index] = scores[child];
+                ids[index] = ids[child];
+                index = child;
+            }
+            scores[index] = score;
+            ids[index] = id;
+            return top;
+        }
+    }
+}
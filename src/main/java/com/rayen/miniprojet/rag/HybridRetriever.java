@@ -0,0 +1,187 @@
+package com.rayen.miniprojet.rag;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Recherche hybride : la recherche vectorielle et la recherche BM25 sont lancées
+ * en parallèle, chacune avec son propre budget de latence, puis leurs classements
+ * sont fusionnés par Reciprocal Rank Fusion (RRF).
+ *
+ * Une jambe qui dépasse son budget est ignorée (liste vide) : la latence totale
+ * est celle de la jambe la plus lente, plafonnée par son budget. Tant que l'index
+ * vectoriel du corpus est en construction, seule la jambe mots-clés est lancée.
+ */
+@Component
+@Slf4j
+public class HybridRetriever {
+
+    private static final double SIMILARITY_THRESHOLD = 0.2;
+
+    private final VectorStore vectorStore;
+    private final MeterRegistry meterRegistry;
+    private final long vectorBudgetMs;
+    private final long keywordBudgetMs;
+    private final int rrfK;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public HybridRetriever(VectorStore vectorStore,
+                           MeterRegistry meterRegistry,
+                           @Value("${rag.retrieval.vector-budget-ms:2000}") long vectorBudgetMs,
+                           @Value("${rag.retrieval.keyword-budget-ms:200}") long keywordBudgetMs,
+                           @Value("${rag.retrieval.rrf-k:60}") int rrfK) {
+        this.vectorStore = vectorStore;
+        this.meterRegistry = meterRegistry;
+        this.vectorBudgetMs = vectorBudgetMs;
+        this.keywordBudgetMs = keywordBudgetMs;
+        this.rrfK = rrfK;
+    }
+
+    /**
+     * Retourne les {@code topK} chunks les plus pertinents après fusion des deux classements ;
+     * la jambe mots-clés interroge l'instantané de corpus fourni par l'appelant
+     */
+    public List<Document> retrieve(String query, int topK, CorpusSnapshot corpus) {
+        return retrieveDetailed(query, null, topK, corpus).fused();
+    }
+
+    /**
+     * Même recherche avec l'embedding de la question déjà calculé (null : calculé par le VectorStore)
+     */
+    public List<Document> retrieve(String query, float[] queryEmbedding, int topK, CorpusSnapshot corpus) {
+        return retrieveDetailed(query, queryEmbedding, topK, corpus).fused();
+    }
+
+    /**
+     * Même recherche, avec le résultat et la durée de chaque jambe (diagnostic)
+     */
+    public Retrieval retrieveDetailed(String query, int topK, CorpusSnapshot corpus) {
+        return retrieveDetailed(query, null, topK, corpus);
+    }
+
+    private Retrieval retrieveDetailed(String query, float[] queryEmbedding, int topK, CorpusSnapshot corpus) {
+        long start = System.nanoTime();
+
+        // Index vectoriel encore en construction (démarrage) : mots-clés seuls
+        CompletableFuture<Leg> vectorLeg = corpus.vectorIndexReady()
+            ? leg("vector", vectorBudgetMs, () -> vectorSearch(query, queryEmbedding, topK))
+            : CompletableFuture.completedFuture(new Leg("vector", List.of(), 0, "pending"));
+
+        CompletableFuture<Leg> keywordLeg = leg("keyword", keywordBudgetMs, () ->
+            corpus.keywordSearch(query, topK));
+
+        Leg vector = vectorLeg.join();
+        Leg keyword = keywordLeg.join();
+        long fuseStart = System.nanoTime();
+        List<Document> fused = fuse(List.of(vector.results(), keyword.results()), topK);
+        long fuseNanos = System.nanoTime() - fuseStart;
+        long totalNanos = System.nanoTime() - start;
+
+        recordLeg(vector);
+        recordLeg(keyword);
+        recordChunks("fused", fused.size());
+
+        log.info("🔀 Recherche hybride : {} vectoriels + {} mots-clés → {} fusionnés en {} ms",
+            vector.results().size(), keyword.results().size(), fused.size(), totalNanos / 1_000_000);
+        return new Retrieval(vector, keyword, fused, fuseNanos, totalNanos);
+    }
+
+    // Recherche directe par embedding quand il est fourni et que le VectorStore le permet
+    private List<Document> vectorSearch(String query, float[] queryEmbedding, int topK) {
+        if (queryEmbedding != null && vectorStore instanceof EmbeddingSearch search) {
+            return search.similaritySearch(queryEmbedding, topK, SIMILARITY_THRESHOLD);
+        }
+        return vectorStore.similaritySearch(
+            SearchRequest.query(query)
+                .withTopK(topK)
+                .withSimilarityThreshold(SIMILARITY_THRESHOLD));
+    }
+
+    // Lance une jambe de recherche avec son budget : en cas d'échec ou de dépassement → liste vide
+    private CompletableFuture<Leg> leg(String name, long budgetMs, Supplier<List<Document>> search) {
+        return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return new Leg(name, search.get(), System.nanoTime() - start, "ok");
+                } catch (RuntimeException e) {
+                    log.warn("⚠️ Recherche {} échouée : {}", name, e.getMessage());
+                    return new Leg(name, List.of(), System.nanoTime() - start, "error");
+                }
+            }, executor)
+            .completeOnTimeout(new Leg(name, List.of(), TimeUnit.MILLISECONDS.toNanos(budgetMs), "timeout"),
+                budgetMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void recordLeg(Leg leg) {
+        Timer.builder("rag.retrieval.leg")
+            .description("Durée de chaque jambe de la recherche hybride")
+            .tag("leg", leg.name())
+            .tag("outcome", leg.outcome())
+            .register(meterRegistry)
+            .record(leg.nanos(), TimeUnit.NANOSECONDS);
+        recordChunks(leg.name(), leg.results().size());
+    }
+
+    private void recordChunks(String leg, int count) {
+        DistributionSummary.builder("rag.retrieval.chunks")
+            .description("Chunks retournés par jambe de recherche")
+            .tag("leg", leg)
+            .register(meterRegistry)
+            .record(count);
+    }
+
+    /**
+     * Reciprocal Rank Fusion : score(d) = Σ 1 / (k + rang)
+     */
+    List<Document> fuse(List<List<Document>> rankings, int topK) {
+        Map<String, Document> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new HashMap<>();
+
+        for (List<Document> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                Document doc = ranking.get(rank);
+                documents.putIfAbsent(doc.getId(), doc);
+                scores.merge(doc.getId(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+
+        List<String> ids = new ArrayList<>(documents.keySet());
+        ids.sort((a, b) -> Double.compare(scores.get(b), scores.get(a)));
+
+        List<Document> fused = new ArrayList<>(Math.min(topK, ids.size()));
+        for (int i = 0; i < Math.min(topK, ids.size()); i++) {
+            fused.add(documents.get(ids.get(i)));
+        }
+        return fused;
+    }
+
+    // Résultat d'une jambe : ok, error (liste vide), timeout (liste vide, budget dépassé)
+    // ou pending (vecteurs pas encore indexés, jambe non lancée)
+    public record Leg(String name, List<Document> results, long nanos, String outcome) {}
+
+    public record Retrieval(Leg vector, Leg keyword, List<Document> fused, long fuseNanos, long totalNanos) {}
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
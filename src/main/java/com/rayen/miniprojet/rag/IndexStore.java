@@ -0,0 +1,269 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index persistant sur disque : un fichier binaire par document source contenant
+ * le texte complet, les chunks et leurs embeddings. Le nom du fichier reprend celui du document
+ * (lisible) suivi d'un hash du nom exact : deux noms proches ("a b.pdf", "a_b.pdf") ne se mélangent pas.
+ *
+ * Chaque fichier est identifié par une empreinte (SHA-256 du contenu du document
+ * + paramètres du splitter + modèle d'embedding). Si l'empreinte ne correspond plus, le fichier
+ * est ignoré et le document doit être ré-embeddé.
+ *
+ * Format (big-endian) :
+ * <pre>
+ * int    MAGIC, int VERSION
+ * str    empreinte
+ * str    signature du modèle d'embedding (les embeddings ne sont réutilisables qu'avec le même)
+ * str    texte complet
+ * int    dimensions, int nombre de chunks
+ * chunk* : float[dimensions] embedding, str id, str contenu, int nbMeta, (str clé, byte type, valeur)*
+ * </pre>
+ */
+@Component
+@Slf4j
+public class IndexStore {
+
+    private static final int MAGIC = 0x52414731; // "RAG1"
+    private static final int VERSION = 2;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INT = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_DOUBLE = 3;
+    private static final byte TYPE_BOOLEAN = 4;
+
+    private final Path directory;
+
+    public IndexStore(@Value("${rag.index.directory:data/rag-index}") String directory) {
+        this.directory = Paths.get(directory);
+    }
+
+    /**
+     * Calcule l'empreinte d'un document : contenu binaire + signature du découpage + modèle d'embedding
+     */
+    public static String fingerprint(Resource resource, String splitterSignature, String embeddingSignature)
+            throws IOException {
+        MessageDigest digest = sha256();
+        try (InputStream in = resource.getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update(splitterSignature.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(embeddingSignature.getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Charge l'index d'un document (lecture séquentielle bufferisée), uniquement si l'empreinte correspond
+     */
+    public Optional<IndexedSource> load(String sourceName, String fingerprint) {
+        return read(sourceName, fingerprint);
+    }
+
+    /**
+     * Charge l'index même obsolète : ses embeddings restent réutilisables pour les chunks inchangés
+     */
+    public Optional<IndexedSource> loadStale(String sourceName) {
+        return read(sourceName, null);
+    }
+
+    public void delete(String sourceName) throws IOException {
+        Files.deleteIfExists(fileFor(sourceName));
+    }
+
+    // fingerprint null : pas de vérification d'empreinte
+    private Optional<IndexedSource> read(String sourceName, String fingerprint) {
+        Path file = fileFor(sourceName);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+
+        // Les embeddings finissent de toute façon sur le tas : une lecture en flux évite de mapper le fichier
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 256 * 1024))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                log.warn("⚠️ Index {} ignoré : format inconnu", file);
+                return Optional.empty();
+            }
+            String storedFingerprint = readString(in);
+            if (fingerprint != null && !storedFingerprint.equals(fingerprint)) {
+                log.info("🔄 Index {} obsolète (document, découpage ou modèle d'embedding modifié)", file.getFileName());
+                return Optional.empty();
+            }
+
+            String embeddingSignature = readString(in);
+            String fullText = readString(in);
+            int dimensions = in.readInt();
+            int count = in.readInt();
+
+            byte[] vectorBytes = new byte[dimensions * Float.BYTES];
+            List<Document> chunks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                in.readFully(vectorBytes);
+                float[] embedding = new float[dimensions];
+                ByteBuffer.wrap(vectorBytes).asFloatBuffer().get(embedding);
+
+                String id = readString(in);
+                String content = readString(in);
+                Map<String, Object> metadata = readMetadata(in);
+
+                Document chunk = new Document(id, content, metadata);
+                chunk.setEmbedding(embedding);
+                chunks.add(chunk);
+            }
+
+            return Optional.of(new IndexedSource(embeddingSignature, fullText, chunks));
+
+        } catch (IOException | RuntimeException e) {
+            log.warn("⚠️ Lecture de l'index {} impossible : {}", file, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Écrit l'index d'un document (fichier temporaire puis remplacement atomique)
+     */
+    public void save(String sourceName, String fingerprint, String embeddingSignature, String fullText,
+                     List<Document> chunks) throws IOException {
+        Files.createDirectories(directory);
+        Path file = fileFor(sourceName);
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        int dimensions = chunks.isEmpty() ? 0 : chunks.get(0).getEmbedding().length;
+
+        try (OutputStream os = Files.newOutputStream(tmp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os, 256 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            writeString(out, fingerprint);
+            writeString(out, embeddingSignature);
+            writeString(out, fullText);
+            out.writeInt(dimensions);
+            out.writeInt(chunks.size());
+
+            for (Document chunk : chunks) {
+                float[] embedding = chunk.getEmbedding();
+                if (embedding.length != dimensions) {
+                    throw new IllegalStateException("Dimension d'embedding incohérente pour le chunk " + chunk.getId());
+                }
+                for (float value : embedding) {
+                    out.writeFloat(value);
+                }
+                writeString(out, chunk.getId());
+                writeString(out, chunk.getContent());
+                writeMetadata(out, chunk.getMetadata());
+            }
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("💾 Index persisté : {} ({} chunks, {} dimensions)", file, chunks.size(), dimensions);
+    }
+
+    private Path fileFor(String sourceName) {
+        String readable = sourceName.replaceAll("[^a-zA-Z0-9._-]", "_");
+        return directory.resolve(readable + "-" + contentHash(sourceName).substring(0, 16) + ".idx");
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeMetadata(DataOutputStream out, Map<String, Object> metadata) throws IOException {
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            writeString(out, entry.getKey());
+            Object value = entry.getValue();
+            if (value instanceof Integer i) {
+                out.writeByte(TYPE_INT);
+                out.writeInt(i);
+            } else if (value instanceof Long l) {
+                out.writeByte(TYPE_LONG);
+                out.writeLong(l);
+            } else if (value instanceof Number n) {
+                out.writeByte(TYPE_DOUBLE);
+                out.writeDouble(n.doubleValue());
+            } else if (value instanceof Boolean b) {
+                out.writeByte(TYPE_BOOLEAN);
+                out.writeBoolean(b);
+            } else {
+                out.writeByte(TYPE_STRING);
+                writeString(out, String.valueOf(value));
+            }
+        }
+    }
+
+    private static Map<String, Object> readMetadata(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Object> metadata = new LinkedHashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            Object value = switch (type) {
+                case TYPE_INT -> in.readInt();
+                case TYPE_LONG -> in.readLong();
+                case TYPE_DOUBLE -> in.readDouble();
+                case TYPE_BOOLEAN -> in.readBoolean();
+                default -> readString(in);
+            };
+            metadata.put(key, value);
+        }
+        return metadata;
+    }
+
+    /**
+     * Empreinte SHA-256 d'un texte (identité d'un chunk par son contenu)
+     */
+    public static String contentHash(String content) {
+        return HexFormat.of().formatHex(sha256().digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Contenu d'un document restauré depuis le disque, avec le modèle qui a produit ses embeddings
+    public record IndexedSource(String embeddingSignature, String fullText, List<Document> chunks) {}
+}
@@ -0,0 +1,456 @@
+package com.rayen.miniprojet.rag;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.document.DocumentReader;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.reader.pdf.PagePdfDocumentReader;
+import org.springframework.ai.reader.tika.TikaDocumentReader;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Pipeline d'ingestion de tous les documents du répertoire configuré.
+ *
+ * Chaque document traverse 3 étapes exécutées comme tâches distinctes sur un
+ * executor borné : lecture des pages → découpage en chunks → embedding par lots.
+ * Les documents avancent en parallèle (pendant que l'un est embeddé, un autre est lu).
+ * Les documents inchangés sont restaurés depuis l'{@link IndexStore}.
+ *
+ * Chaque chunk est identifié par l'empreinte de son contenu : quand un document change,
+ * seuls les chunks dont le texte est nouveau sont embeddés, les autres reprennent
+ * l'embedding de l'index précédent (s'il vient du même modèle d'embedding).
+ *
+ * L'avancement de la dernière ingestion ({@link #progress()}) alimente l'état de santé.
+ */
+@Component
+@Slf4j
+public class IngestionPipeline {
+
+    // Clés de métadonnées portées par chaque chunk
+    public static final String METADATA_SOURCE = "source";
+    public static final String METADATA_PAGE = PagePdfDocumentReader.METADATA_START_PAGE_NUMBER;
+    public static final String METADATA_CHUNK_INDEX = "chunk_index";
+
+    // Paramètres du découpage (font partie de l'empreinte de l'index persistant)
+    private static final int CHUNK_SIZE = 300;
+    private static final int MIN_CHUNK_SIZE_CHARS = 100;
+    private static final int MIN_CHUNK_LENGTH_TO_EMBED = 10;
+    private static final int MAX_NUM_CHUNKS = 500;
+    private static final boolean KEEP_SEPARATOR = true;
+    private static final String SPLITTER_SIGNATURE = "TokenTextSplitter:%d:%d:%d:%d:%b:content-ids".formatted(
+        CHUNK_SIZE, MIN_CHUNK_SIZE_CHARS, MIN_CHUNK_LENGTH_TO_EMBED, MAX_NUM_CHUNKS, KEEP_SEPARATOR);
+
+    private final ResourcePatternResolver resourceResolver;
+    private final EmbeddingModel embeddingModel;
+    private final String embeddingModelName;
+    private final IndexStore indexStore;
+    private final String location;
+    private final int threads;
+    private final int embeddingBatchSize;
+
+    // Avancement de la dernière ingestion vers un VectorStore
+    private final AtomicInteger progressDocuments = new AtomicInteger();
+    private final AtomicInteger progressChunks = new AtomicInteger();
+    private final AtomicInteger progressIndexed = new AtomicInteger();
+
+    // Ré-indexations à chaud : un seul executor, dont les threads inactifs s'arrêtent
+    private final ThreadPoolExecutor reindexExecutor;
+
+    // Modèle d'embedding (implémentation, nom, dimensions), calculé à la première lecture
+    private volatile String embeddingSignature;
+
+    public IngestionPipeline(ResourcePatternResolver resourceResolver,
+                             EmbeddingModel embeddingModel,
+                             @Value("${spring.ai.ollama.embedding.options.model:}") String embeddingModelName,
+                             IndexStore indexStore,
+                             @Value("${rag.docs.location:classpath*:docs/*}") String location,
+                             @Value("${rag.ingestion.threads:4}") int threads,
+                             @Value("${rag.ingestion.embedding-batch-size:32}") int embeddingBatchSize) {
+        this.resourceResolver = resourceResolver;
+        this.embeddingModel = embeddingModel;
+        this.embeddingModelName = embeddingModelName;
+        this.indexStore = indexStore;
+        this.location = location;
+        this.threads = threads;
+        this.embeddingBatchSize = embeddingBatchSize;
+        this.reindexExecutor = newExecutor();
+        this.reindexExecutor.setKeepAliveTime(30, TimeUnit.SECONDS);
+        this.reindexExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reindexExecutor.shutdownNow();
+    }
+
+    /**
+     * Ingère tous les documents trouvés et retourne les chunks embeddés + le texte complet
+     */
+    public Result ingest() {
+        return ingest(null);
+    }
+
+    /**
+     * Comme {@link #ingest()}, en ajoutant chaque lot de chunks à {@code target} dès qu'il est
+     * embeddé (ou restauré) : l'index vectoriel se construit pendant l'embedding du reste.
+     * Les chunks d'un document en échec sont retirés de {@code target}.
+     */
+    public Result ingest(VectorStore target) {
+        return ingest(target, null);
+    }
+
+    /**
+     * Comme {@link #ingest(VectorStore)} ; {@code onSplit} reçoit le corpus dès que tous les
+     * documents sont lus et découpés, alors que leurs chunks ne sont pas encore tous embeddés
+     * (l'embedding continue pendant l'appel).
+     */
+    public Result ingest(VectorStore target, Consumer<Result> onSplit) {
+        long start = System.nanoTime();
+        List<Resource> resources = discover();
+        log.info("📚 {} document(s) trouvé(s) dans {}", resources.size(), location);
+        progressDocuments.set(resources.size());
+        progressChunks.set(0);
+        progressIndexed.set(0);
+
+        ThreadPoolExecutor executor = newExecutor();
+        List<SourceState> sources;
+        try {
+            List<CompletableFuture<SourceState>> splits = resources.stream()
+                .map(resource -> splitSource(resource, executor))
+                .toList();
+            List<CompletableFuture<SourceState>> embedded = splits.stream()
+                .map(split -> embedSource(split, executor, target))
+                .toList();
+            if (onSplit != null) {
+                Result split = collect(splits.stream().map(CompletableFuture::join).toList());
+                log.info("✂️ Lecture et découpage terminés en {} ms : {} chunks (embedding en cours)",
+                    (System.nanoTime() - start) / 1_000_000, split.chunks().size());
+                onSplit.accept(split);
+            }
+            sources = embedded.stream().map(CompletableFuture::join).toList();
+        } finally {
+            executor.shutdown();
+        }
+
+        Result result = collect(sources);
+        int pages = 0;
+        int restored = 0;
+        for (SourceState source : sources) {
+            if (source.restored) {
+                restored++;
+            } else {
+                pages += source.pages;
+            }
+        }
+
+        double seconds = Math.max((System.nanoTime() - start) / 1e9, 1e-9);
+        log.info("✅ Ingestion terminée en {} s : {} chunks, {} pages lues, {} document(s) restauré(s) depuis l'index",
+            String.format("%.2f", seconds), result.chunks().size(), pages, restored);
+        log.info("📈 Débit d'ingestion : {} pages/s, {} chunks/s",
+            String.format("%.1f", pages / seconds), String.format("%.1f", result.chunks().size() / seconds));
+
+        return result;
+    }
+
+    /**
+     * Avancement de la dernière ingestion : documents trouvés, chunks découpés, chunks indexés
+     */
+    public Progress progress() {
+        return new Progress(progressDocuments.get(), progressChunks.get(), progressIndexed.get());
+    }
+
+    /**
+     * Ré-indexe un seul document (ajouté ou modifié) : seuls ses chunks nouveaux sont embeddés
+     */
+    public Result reindex(Resource resource) {
+        SourceState state = embedSource(splitSource(resource, reindexExecutor), reindexExecutor, null).join();
+        if (state.chunks == null) {
+            throw new IllegalStateException("Ré-indexation de " + resource.getFilename() + " échouée");
+        }
+        return new Result(state.chunks, state.fullText, Map.of(state.name, state.fullText));
+    }
+
+    /**
+     * Oublie un document supprimé (index persistant compris)
+     */
+    public void forget(String sourceName) {
+        try {
+            indexStore.delete(sourceName);
+        } catch (IOException e) {
+            log.warn("⚠️ Index de {} non supprimé : {}", sourceName, e.getMessage());
+        }
+    }
+
+    // Executor borné : si la file est pleine, le thread appelant exécute la tâche
+    private ThreadPoolExecutor newExecutor() {
+        return new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(threads * 16),
+            Thread.ofPlatform().name("rag-ingest-", 0).factory(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    private List<Resource> discover() {
+        try {
+            return Arrays.stream(resourceResolver.getResources(location))
+                .filter(Resource::isReadable)
+                .filter(resource -> resource.getFilename() != null)
+                .sorted(Comparator.comparing(Resource::getFilename))
+                .toList();
+        } catch (IOException e) {
+            log.error("❌ Impossible de lister les documents de {}", location, e);
+            return List.of();
+        }
+    }
+
+    // Chunks et textes des documents (ceux en échec n'apportent rien)
+    private static Result collect(List<SourceState> sources) {
+        StringBuilder fullText = new StringBuilder();
+        Map<String, String> sourceTexts = new LinkedHashMap<>();
+        List<Document> chunks = new ArrayList<>();
+        for (SourceState source : sources) {
+            if (source.fullText != null) {
+                fullText.append(source.fullText);
+                sourceTexts.put(source.name, source.fullText);
+            }
+            if (source.chunks != null) {
+                chunks.addAll(source.chunks);
+            }
+        }
+        return new Result(chunks, fullText.toString(), sourceTexts);
+    }
+
+    // Étapes 1 et 2 ; un document illisible donne un état vide (sans chunks)
+    private CompletableFuture<SourceState> splitSource(Resource resource, Executor executor) {
+        SourceState state = new SourceState(resource);
+        return CompletableFuture.supplyAsync(() -> read(state), executor)
+            .thenApplyAsync(this::split, executor)
+            .exceptionally(e -> {
+                log.error("❌ Erreur lors de l'ingestion de {}", state.name, e);
+                return new SourceState(resource);
+            });
+    }
+
+    // Étape 3 ; en cas d'échec, les chunks déjà transmis à target en sont retirés
+    private CompletableFuture<SourceState> embedSource(CompletableFuture<SourceState> split, Executor executor,
+                                                       VectorStore target) {
+        return split.thenComposeAsync(state -> {
+                if (state.chunks == null) {
+                    return CompletableFuture.completedFuture(state);
+                }
+                state.target = target;
+                if (target != null) {
+                    progressChunks.addAndGet(state.chunks.size());
+                }
+                return embed(state, executor);
+            }, executor)
+            .exceptionally(e -> {
+                SourceState state = split.join();
+                log.error("❌ Erreur lors de l'ingestion de {}", state.name, e);
+                if (target != null && state.chunks != null) {
+                    target.delete(state.chunks.stream().map(Document::getId).toList());
+                }
+                return new SourceState(state.resource);
+            });
+    }
+
+    // Étape 1 : restauration depuis l'index persistant, ou lecture des pages
+    private SourceState read(SourceState state) {
+        try {
+            state.fingerprint = IndexStore.fingerprint(state.resource, SPLITTER_SIGNATURE, embeddingSignature());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Optional<IndexStore.IndexedSource> indexed = indexStore.load(state.name, state.fingerprint);
+        if (indexed.isPresent()) {
+            log.info("💾 {} : index persistant à jour - aucun ré-embedding nécessaire", state.name);
+            state.fullText = indexed.get().fullText();
+            state.chunks = indexed.get().chunks();
+            state.restored = true;
+            return state;
+        }
+
+        // Document modifié : les embeddings de l'ancien index restent valables pour le texte inchangé
+        // (clé = modèle + texte : ceux d'un autre modèle ne sont jamais repris)
+        indexStore.loadStale(state.name).ifPresent(stale -> {
+            state.reusableEmbeddings = new HashMap<>();
+            for (Document chunk : stale.chunks()) {
+                state.reusableEmbeddings.put(reuseKey(stale.embeddingSignature(), chunk.getContent()), chunk.getEmbedding());
+            }
+        });
+
+        DocumentReader reader = state.name.toLowerCase().endsWith(".pdf")
+            ? new PagePdfDocumentReader(state.resource)
+            : new TikaDocumentReader(state.resource);
+        state.pageDocuments = reader.get();
+        state.pages = state.pageDocuments.size();
+
+        StringBuilder fullText = new StringBuilder();
+        for (Document page : state.pageDocuments) {
+            fullText.append(page.getContent()).append("\n\n");
+        }
+        state.fullText = fullText.toString();
+        log.info("📖 {} : {} pages lues ({} caractères)", state.name, state.pages, state.fullText.length());
+        return state;
+    }
+
+    // Étape 2 : découpage en chunks, avec source et page dans les métadonnées
+    private SourceState split(SourceState state) {
+        if (state.restored) {
+            return state;
+        }
+
+        TokenTextSplitter splitter = new TokenTextSplitter(
+            CHUNK_SIZE,                 // Taille moyenne des chunks
+            MIN_CHUNK_SIZE_CHARS,       // Overlap généreux pour ne rien perdre
+            MIN_CHUNK_LENGTH_TO_EMBED,  // Minimum 10 caractères
+            MAX_NUM_CHUNKS,             // Maximum 500 chunks
+            KEEP_SEPARATOR              // Garder les séparateurs
+        );
+
+        List<Document> split = splitter.apply(state.pageDocuments);
+        List<Document> chunks = new ArrayList<>(split.size());
+        Map<String, Integer> occurrences = new HashMap<>();
+        for (int i = 0; i < split.size(); i++) {
+            Document chunk = split.get(i);
+            Map<String, Object> metadata = new HashMap<>(chunk.getMetadata());
+            metadata.put(METADATA_SOURCE, state.name);
+            metadata.putIfAbsent(METADATA_PAGE, 1);
+            metadata.put(METADATA_CHUNK_INDEX, i);
+
+            // Identifiant stable = source + contenu (+ rang si le même texte se répète)
+            String hash = IndexStore.contentHash(chunk.getContent());
+            int occurrence = occurrences.merge(hash, 1, Integer::sum);
+            String id = UUID.nameUUIDFromBytes((state.name + "|" + hash + "|" + occurrence)
+                .getBytes(StandardCharsets.UTF_8)).toString();
+            chunks.add(new Document(id, chunk.getContent(), metadata));
+        }
+        state.chunks = chunks;
+        state.pageDocuments = null;
+        log.info("✂️ {} : {} chunks créés", state.name, chunks.size());
+        return state;
+    }
+
+    // Étape 3 : embedding par lots en parallèle, puis persistance de l'index
+    private CompletableFuture<SourceState> embed(SourceState state, Executor executor) {
+        if (state.restored || state.chunks.isEmpty()) {
+            publish(state, state.chunks);
+            return CompletableFuture.completedFuture(state);
+        }
+
+        // Chunks dont le texte existait déjà : embedding repris de l'ancien index
+        List<Document> toEmbed = new ArrayList<>();
+        List<Document> reused = new ArrayList<>();
+        for (Document chunk : state.chunks) {
+            float[] reusable = state.reusableEmbeddings == null ? null
+                : state.reusableEmbeddings.get(reuseKey(embeddingSignature(), chunk.getContent()));
+            if (reusable != null && reusable.length > 0) {
+                chunk.setEmbedding(reusable);
+                reused.add(chunk);
+            } else {
+                toEmbed.add(chunk);
+            }
+        }
+        if (state.reusableEmbeddings != null) {
+            log.info("♻️ {} : {} chunks inchangés, {} à embedder",
+                state.name, reused.size(), toEmbed.size());
+            publish(state, reused);
+        }
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int from = 0; from < toEmbed.size(); from += embeddingBatchSize) {
+            List<Document> batch = toEmbed.subList(from, Math.min(from + embeddingBatchSize, toEmbed.size()));
+            batches.add(CompletableFuture.runAsync(() -> {
+                List<float[]> embeddings = embeddingModel.embed(batch.stream().map(Document::getContent).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    batch.get(i).setEmbedding(embeddings.get(i));
+                }
+                publish(state, batch);
+            }, executor));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+            .thenApply(unused -> {
+                try {
+                    indexStore.save(state.name, state.fingerprint, embeddingSignature(), state.fullText, state.chunks);
+                } catch (IOException e) {
+                    log.warn("⚠️ {} : index non persisté ({})", state.name, e.getMessage());
+                }
+                return state;
+            });
+    }
+
+    // Les dimensions viennent du modèle lui-même (un appel au plus, mémorisé)
+    private String embeddingSignature() {
+        String signature = embeddingSignature;
+        if (signature == null) {
+            signature = "%s:%s:%d".formatted(embeddingModel.getClass().getSimpleName(), embeddingModelName,
+                embeddingModel.dimensions());
+            embeddingSignature = signature;
+        }
+        return signature;
+    }
+
+    private static String reuseKey(String embeddingSignature, String content) {
+        return embeddingSignature + "|" + IndexStore.contentHash(content);
+    }
+
+    // Chunks embeddés, transmis à l'index vectoriel en cours de construction
+    private void publish(SourceState state, List<Document> embedded) {
+        if (state.target != null && embedded != null && !embedded.isEmpty()) {
+            state.target.add(List.copyOf(embedded));
+            progressIndexed.addAndGet(embedded.size());
+        }
+    }
+
+    // État d'un document qui traverse le pipeline
+    private static final class SourceState {
+        final Resource resource;
+        final String name;
+        String fingerprint;
+        List<Document> pageDocuments;
+        String fullText;
+        List<Document> chunks;
+        Map<String, float[]> reusableEmbeddings;
+        VectorStore target;
+        int pages;
+        boolean restored;
+
+        SourceState(Resource resource) {
+            this.resource = resource;
+            this.name = resource.getFilename();
+        }
+    }
+
+    // Résultat de l'ingestion : chunks embeddés + texte complet du corpus (et par document)
+    public record Result(List<Document> chunks, String fullText, Map<String, String> sourceTexts) {}
+
+    public record Progress(int documents, int chunks, int indexedChunks) {}
+}
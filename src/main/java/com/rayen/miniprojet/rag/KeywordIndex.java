@@ -0,0 +1,236 @@
+package com.rayen.miniprojet.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index inversé immuable sur les chunks, construit une fois à l'ingestion.
+ *
+ * Les postings sont stockés en tableaux primitifs (identifiants de chunk + fréquences)
+ * indexés par identifiant de terme. Les requêtes sont classées avec BM25 et seuls les
+ * K meilleurs chunks sont conservés via un tas min primitif : aucune allocation par chunk.
+ */
+public final class KeywordIndex {
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final KeywordIndex EMPTY = build(List.of());
+
+    private final List<Document> documents;
+    private final Map<String, Integer> termIds;
+    private final int[][] postingDocs;
+    private final int[][] postingFreqs;
+    private final float[] docNorms;
+
+    private KeywordIndex(List<Document> documents, Map<String, Integer> termIds,
+                         int[][] postingDocs, int[][] postingFreqs, int[] docLengths) {
+        this.documents = documents;
+        this.termIds = termIds;
+        this.postingDocs = postingDocs;
+        this.postingFreqs = postingFreqs;
+
+        // Normalisation BM25 par longueur de chunk, précalculée une fois pour toutes
+        long total = 0;
+        for (int length : docLengths) {
+            total += length;
+        }
+        float avgDocLength = docLengths.length == 0 ? 1f : Math.max(1f, (float) total / docLengths.length);
+        this.docNorms = new float[docLengths.length];
+        for (int i = 0; i < docLengths.length; i++) {
+            docNorms[i] = K1 * (1 - B + B * docLengths[i] / avgDocLength);
+        }
+    }
+
+    public static KeywordIndex empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Construit l'index à partir des chunks
+     */
+    public static KeywordIndex build(List<Document> documents) {
+        List<Document> docs = List.copyOf(documents);
+        Map<String, Integer> termIds = new HashMap<>();
+        List<IntArray> docsByTerm = new ArrayList<>();
+        List<IntArray> freqsByTerm = new ArrayList<>();
+        int[] docLengths = new int[docs.size()];
+
+        for (int docId = 0; docId < docs.size(); docId++) {
+            List<String> tokens = FrenchAnalyzer.tokenize(docs.get(docId).getContent());
+            docLengths[docId] = tokens.size();
+
+            int[] ids = new int[tokens.size()];
+            for (int i = 0; i < ids.length; i++) {
+                Integer termId = termIds.get(tokens.get(i));
+                if (termId == null) {
+                    termId = termIds.size();
+                    termIds.put(tokens.get(i), termId);
+                    docsByTerm.add(new IntArray());
+                    freqsByTerm.add(new IntArray());
+                }
+                ids[i] = termId;
+            }
+
+            // Fréquences par terme : tri puis comptage des séquences
+            Arrays.sort(ids);
+            for (int i = 0; i < ids.length; ) {
+                int j = i;
+                while (j < ids.length && ids[j] == ids[i]) {
+                    j++;
+                }
+                docsByTerm.get(ids[i]).add(docId);
+                freqsByTerm.get(ids[i]).add(j - i);
+                i = j;
+            }
+        }
+
+        int[][] postingDocs = new int[termIds.size()][];
+        int[][] postingFreqs = new int[termIds.size()][];
+        for (int t = 0; t < postingDocs.length; t++) {
+            postingDocs[t] = docsByTerm.get(t).toArray();
+            postingFreqs[t] = freqsByTerm.get(t).toArray();
+        }
+
+        return new KeywordIndex(docs, Map.copyOf(termIds), postingDocs, postingFreqs, docLengths);
+    }
+
+    /**
+     * Retourne les {@code topK} chunks les plus pertinents selon BM25
+     */
+    public List<Document> search(String query, int topK) {
+        int n = documents.size();
+        if (n == 0 || topK <= 0) {
+            return List.of();
+        }
+
+        Set<String> terms = new LinkedHashSet<>(FrenchAnalyzer.tokenize(query));
+        float[] scores = new float[n];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+
+        for (String term : terms) {
+            Integer termId = termIds.get(term);
+            if (termId == null) {
+                continue;
+            }
+            int[] docs = postingDocs[termId];
+            int[] freqs = postingFreqs[termId];
+            float idf = (float) Math.log(1 + (n - docs.length + 0.5) / (docs.length + 0.5));
+
+            for (int i = 0; i < docs.length; i++) {
+                int doc = docs[i];
+                float tf = freqs[i];
+                if (scores[doc] == 0f) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf * (tf * (K1 + 1)) / (tf + docNorms[doc]);
+            }
+        }
+
+        return topK(scores, touched, touchedCount, topK);
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public int vocabularySize() {
+        return termIds.size();
+    }
+
+    // Sélection des K meilleurs via un tas min sur tableaux primitifs
+    private List<Document> topK(float[] scores, int[] candidates, int count, int k) {
+        int capacity = Math.min(k, count);
+        int[] heapDocs = new int[capacity];
+        float[] heapScores = new float[capacity];
+        int size = 0;
+
+        for (int i = 0; i < count; i++) {
+            int doc = candidates[i];
+            float score = scores[doc];
+            if (size < capacity) {
+                heapDocs[size] = doc;
+                heapScores[size] = score;
+                siftUp(heapDocs, heapScores, size++);
+            } else if (score > heapScores[0]) {
+                heapDocs[0] = doc;
+                heapScores[0] = score;
+                siftDown(heapDocs, heapScores, size);
+            }
+        }
+
+        // Vidage du tas : du moins pertinent au plus pertinent, rempli à l'envers
+        Document[] ranked = new Document[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = documents.get(heapDocs[0]);
+            heapDocs[0] = heapDocs[i];
+            heapScores[0] = heapScores[i];
+            siftDown(heapDocs, heapScores, i);
+        }
+        return Arrays.asList(ranked);
+    }
+
+    private static void siftUp(int[] docs, float[] scores, int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(docs, scores, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] docs, float[] scores, int size) {
+        int index = 0;
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(docs, scores, index, smallest);
+            index = smallest;
+        }
+    }
+
+    private static void swap(int[] docs, float[] scores, int a, int b) {
+        int d = docs[a];
+        docs[a] = docs[b];
+        docs[b] = d;
+        float s = scores[a];
+        scores[a] = scores[b];
+        scores[b] = s;
+    }
+
+    // Tableau d'entiers extensible (évite le boxing pendant la construction)
+    private static final class IntArray {
+        private int[] data = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
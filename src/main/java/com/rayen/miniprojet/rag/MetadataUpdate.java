@@ -0,0 +1,19 @@
+package com.rayen.miniprojet.rag;
+
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * VectorStore capable de remplacer les métadonnées d'un document déjà indexé sans toucher
+ * à son vecteur, par exemple quand un chunk inchangé change de place dans son document
+ */
+public interface MetadataUpdate {
+
+    /**
+     * Remplace contenu et métadonnées des documents de même id ; les ids absents sont ignorés
+     *
+     * @return nombre de documents mis à jour
+     */
+    int updateMetadata(List<Document> documents);
+}
@@ -0,0 +1,36 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * EmbeddingModel qui réutilise l'embedding déjà présent sur un Document
+ * (restauré depuis l'IndexStore) et ne délègue au vrai modèle que si nécessaire.
+ */
+@RequiredArgsConstructor
+public class PrecomputedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        float[] embedding = document.getEmbedding();
+        if (embedding != null && embedding.length > 0) {
+            return embedding;
+        }
+        return delegate.embed(document);
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+}
@@ -0,0 +1,34 @@
+package com.rayen.miniprojet.rag;
+
+/**
+ * Repli sans Vector API
+ */
+final class ScalarVectorMath extends VectorMath {
+
+    @Override
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    float dotInt8(float[] query, byte[] codes, int offset, int length) {
+        return dotInt8Scalar(query, 0, codes, offset, length);
+    }
+
+    static float dotInt8Scalar(float[] query, int queryOffset, byte[] codes, int offset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += query[queryOffset + i] * codes[offset + i];
+        }
+        return sum;
+    }
+
+    @Override
+    String description() {
+        return "scalaire";
+    }
+}
@@ -0,0 +1,61 @@
+package com.rayen.miniprojet.rag;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Produits scalaires sur la largeur SIMD native (AVX2 : 8 flottants, AVX-512 : 16).
+ * Ne doit être chargée que par VectorMath, qui gère l'absence du module incubator.
+ */
+final class SimdVectorMath extends VectorMath {
+
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    // Autant d'octets que de voies flottantes, convertis voie à voie (B2F) ;
+    // pas de forme vectorielle sous 64 bits : en dessous de 8 voies, l'int8 reste scalaire
+    private static final VectorSpecies<Byte> BYTES = FLOATS.length() >= 8
+        ? VectorSpecies.of(byte.class, VectorShape.forBitSize(FLOATS.length() * Byte.SIZE))
+        : null;
+
+    @Override
+    float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector va = FloatVector.fromArray(FLOATS, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(FLOATS, b, bOffset + i);
+            sum = va.mul(vb).add(sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            result += a[aOffset + i] * b[bOffset + i];
+        }
+        return result;
+    }
+
+    @Override
+    float dotInt8(float[] query, byte[] codes, int offset, int length) {
+        if (BYTES == null) {
+            return ScalarVectorMath.dotInt8Scalar(query, 0, codes, offset, length);
+        }
+        FloatVector sum = FloatVector.zero(FLOATS);
+        int i = 0;
+        int bound = FLOATS.loopBound(length);
+        for (; i < bound; i += FLOATS.length()) {
+            FloatVector q = FloatVector.fromArray(FLOATS, query, i);
+            FloatVector c = (FloatVector) ByteVector.fromArray(BYTES, codes, offset + i)
+                .convertShape(VectorOperators.B2F, FLOATS, 0);
+            sum = q.mul(c).add(sum);
+        }
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        return result + ScalarVectorMath.dotInt8Scalar(query, i, codes, offset + i, length - i);
+    }
+
+    @Override
+    String description() {
+        return FLOATS.length() + " voies float" + (BYTES == null ? ", int8 scalaire" : "");
+    }
+}
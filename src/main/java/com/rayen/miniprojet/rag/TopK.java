@@ -0,0 +1,102 @@
+package com.rayen.miniprojet.rag;
+
+/**
+ * Sélection des k meilleurs scores sans objets : tas min sur deux tableaux primitifs
+ * (la racine est le plus faible des k retenus, remplacé dès qu'un meilleur arrive).
+ */
+final class TopK {
+
+    private final float[] scores;
+    private final int[] ids;
+    private int size;
+
+    TopK(int capacity) {
+        this.scores = new float[Math.max(1, capacity)];
+        this.ids = new int[Math.max(1, capacity)];
+    }
+
+    /**
+     * Propose un candidat ; retourne false s'il n'entre pas dans les k meilleurs
+     */
+    boolean offer(float score, int id) {
+        if (size < scores.length) {
+            scores[size] = score;
+            ids[size] = id;
+            siftUp(size++);
+            return true;
+        }
+        if (score <= scores[0]) {
+            return false;
+        }
+        scores[0] = score;
+        ids[0] = id;
+        siftDown(0);
+        return true;
+    }
+
+    boolean isFull() {
+        return size == scores.length;
+    }
+
+    // Plus faible score retenu (seuil d'entrée une fois le tas plein)
+    float minScore() {
+        return scores[0];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vide le tas : identifiants par score décroissant (scoresOut reçoit les scores, peut être null)
+     */
+    int[] drainDescending(float[] scoresOut) {
+        int[] result = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            result[i] = ids[0];
+            if (scoresOut != null) {
+                scoresOut[i] = scores[0];
+            }
+            size--;
+            scores[0] = scores[size];
+            ids[0] = ids[size];
+            siftDown(0);
+        }
+        return result;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left + 1 < size && scores[left + 1] < scores[left] ? left + 1 : left;
+            if (scores[index] <= scores[smallest]) {
+                return;
+            }
+            swap(index, smallest);
+            index = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+        int id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+    }
+}
@@ -0,0 +1,6 @@
+package com.rayen.miniprojet.rag;
+
+/**
+ * Publié quand l'ingestion initiale est terminée et le corpus servi en recherche hybride
+ */
+public record VectorIndexReadyEvent(CorpusSnapshot corpus) {}
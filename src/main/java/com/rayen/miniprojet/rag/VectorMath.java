@@ -0,0 +1,43 @@
+package com.rayen.miniprojet.rag;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Produits scalaires des VectorStore maison. L'implémentation SIMD (Vector API) est choisie
+ * si le module jdk.incubator.vector est chargé (--add-modules jdk.incubator.vector),
+ * sinon on retombe sur une boucle scalaire équivalente.
+ */
+@Slf4j
+abstract class VectorMath {
+
+    private static final VectorMath INSTANCE = load();
+
+    static VectorMath get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Produit scalaire de {@code length} flottants de a (à partir de aOffset) et b (à partir de bOffset)
+     */
+    abstract float dot(float[] a, int aOffset, float[] b, int bOffset, int length);
+
+    /**
+     * Produit scalaire d'une requête en pleine précision et d'une ligne quantifiée en int8
+     */
+    abstract float dotInt8(float[] query, byte[] codes, int offset, int length);
+
+    abstract String description();
+
+    // Chargée par réflexion : SimdVectorMath est compilée à part, seule avec le module incubator (pom.xml)
+    private static VectorMath load() {
+        try {
+            VectorMath simd = (VectorMath) Class.forName("com.rayen.miniprojet.rag.SimdVectorMath")
+                .getDeclaredConstructor().newInstance();
+            log.info("🧮 Similarités calculées avec la Vector API : {}", simd.description());
+            return simd;
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.info("🧮 Vector API indisponible (--add-modules jdk.incubator.vector), calcul scalaire");
+            return new ScalarVectorMath();
+        }
+    }
+}
@@ -1,8 +1,37 @@
 package com.rayen.miniprojet.repositories;
 
 import com.rayen.miniprojet.entities.Product;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     Product findBySku(String sku);
-}
\ No newline at end of file
+
+    List<Product> findBySkuIn(Collection<String> skus);
+
+    // Catalogue allégé (SKU + nom) pour construire le routeur, sans charger les entités
+    List<CatalogEntry> findAllProjectedBy();
+
+    // Produits sous leur seuil, les plus critiques d'abord (filtre et tri servis par idx_product_low_stock)
+    @Query("select p.sku as sku, p.name as name, p.quantity as quantity from Product p "
+         + "where p.lowStock = true order by p.shortfallRatio desc, p.sku")
+    Slice<StockView> findLowStock(Pageable pageable);
+
+    long countByLowStockTrue();
+
+    interface CatalogEntry {
+        String getSku();
+        String getName();
+    }
+
+    interface StockView {
+        String getSku();
+        String getName();
+        int getQuantity();
+    }
+}
@@ -0,0 +1,18 @@
+package com.rayen.miniprojet.services;
+
+import lombok.Getter;
+
+/**
+ * Levée quand le modèle est saturé : file d'attente pleine ou attente trop longue.
+ * {@code retryAfterSeconds} est une estimation du délai avant qu'une place se libère.
+ */
+@Getter
+public class AdmissionRejectedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public AdmissionRejectedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
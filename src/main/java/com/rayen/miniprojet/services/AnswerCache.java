@@ -0,0 +1,254 @@
+package com.rayen.miniprojet.services;
+
+import com.rayen.miniprojet.entities.ProductChangedEvent;
+import com.rayen.miniprojet.rag.CorpusRegistry;
+import com.rayen.miniprojet.rag.FrenchAnalyzer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache de réponses à 2 niveaux devant AIAgent.chat :
+ * 1. correspondance exacte sur la question normalisée (minuscules, sans accents ni ponctuation)
+ * 2. correspondance sémantique : similarité cosinus entre embeddings de questions ≥ seuil, et mêmes
+ *    nombres et identifiants (mots contenant un chiffre) : "stock en 2023" ne répond pas à "stock en 2024"
+ *
+ * Éviction LRU par taille + TTL. Tout le cache est vidé quand le corpus est ré-indexé.
+ * Les questions STOCK (données en temps réel) n'utilisent que le niveau exact avec un TTL court :
+ * deux questions proches ("stock de l'iPhone" / "stock de la PS5") n'ont pas la même réponse.
+ * Elles sont aussi effacées dès qu'un produit est modifié.
+ *
+ * Une réponse n'est mémorisée que si rien n'a changé depuis sa recherche en cache ({@link Lookup}
+ * garde la génération du corpus et l'époque des produits) : une réponse calculée sur l'ancien
+ * corpus, ou un stock lu avant une modification, n'est pas servie ensuite.
+ */
+@Service
+@Slf4j
+public class AnswerCache {
+
+    private final EmbeddingModel embeddingModel;
+    private final CorpusRegistry corpusRegistry;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Duration stockTtl;
+    private final double similarityThreshold;
+
+    // Ordre d'accès → LRU
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long corpusGeneration;
+    // Incrémentée à chaque modification de produit
+    private long productEpoch;
+
+    public AnswerCache(EmbeddingModel embeddingModel,
+                       CorpusRegistry corpusRegistry,
+                       @Value("${chat.cache.enabled:true}") boolean enabled,
+                       @Value("${chat.cache.max-entries:500}") int maxEntries,
+                       @Value("${chat.cache.ttl-seconds:3600}") long ttlSeconds,
+                       @Value("${chat.cache.stock-ttl-seconds:15}") long stockTtlSeconds,
+                       @Value("${chat.cache.similarity-threshold:0.92}") double similarityThreshold) {
+        this.embeddingModel = embeddingModel;
+        this.corpusRegistry = corpusRegistry;
+        this.corpusGeneration = corpusRegistry.current().generation();
+        this.enabled = enabled;
+        this.maxEntries = maxEntries;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.stockTtl = Duration.ofSeconds(stockTtlSeconds);
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    /**
+     * Cherche une réponse en cache. Le résultat sert aussi à {@link #store} et à la recherche
+     * vectorielle ({@link Lookup#embedding()}) pour ne pas recalculer l'embedding de la question.
+     */
+    public Lookup lookup(String query, String queryType) {
+        return lookup(query, queryType, null);
+    }
+
+    /**
+     * Même recherche avec l'embedding de la question déjà calculé (null : calculé ici si nécessaire)
+     */
+    public Lookup lookup(String query, String queryType, float[] queryEmbedding) {
+        if (!enabled || "CSV".equals(queryType)) {
+            return Lookup.BYPASS;
+        }
+
+        String key = queryType + "|" + normalize(query);
+        long generation;
+        long epoch;
+        synchronized (this) {
+            invalidateIfCorpusChanged();
+            generation = corpusGeneration;
+            epoch = productEpoch;
+            Entry exact = entries.get(key);
+            if (exact != null && !exact.isExpired()) {
+                log.info("⚡ Cache (exact) : réponse trouvée");
+                return new Lookup(key, exact.embedding, exact.answer, generation, epoch);
+            }
+        }
+
+        if ("STOCK".equals(queryType)) {
+            return new Lookup(key, null, null, generation, epoch);
+        }
+
+        float[] embedding = queryEmbedding != null ? queryEmbedding : embed(query);
+        if (embedding == null) {
+            return new Lookup(key, null, null, generation, epoch);
+        }
+
+        // Parcours hors verrou, sur une copie des entrées
+        List<Entry> candidates;
+        synchronized (this) {
+            candidates = new ArrayList<>(entries.values());
+        }
+        Set<String> identifiers = identifiers(key);
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        for (Entry entry : candidates) {
+            if (entry.embedding == null || entry.isExpired() || !entry.key.startsWith(queryType + "|")
+                    || !entry.identifiers.equals(identifiers)) {
+                continue;
+            }
+            double similarity = cosine(embedding, entry.embedding);
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best != null) {
+            synchronized (this) {
+                invalidateIfCorpusChanged();
+                // Toujours présente (ni évincée, ni remplacée, ni vidée pendant le parcours) ; rafraîchit la position LRU
+                if (entries.get(best.key) == best) {
+                    log.info("⚡ Cache (sémantique, similarité {}) : réponse trouvée",
+                        String.format("%.3f", bestSimilarity));
+                    return new Lookup(key, embedding, best.answer, generation, epoch);
+                }
+            }
+        }
+        return new Lookup(key, embedding, null, generation, epoch);
+    }
+
+    /**
+     * Mémorise une réponse générée pour la question décrite par {@code lookup}
+     */
+    public synchronized void store(Lookup lookup, String queryType, String answer) {
+        if (lookup.key == null || answer == null) {
+            return;
+        }
+        invalidateIfCorpusChanged();
+        // Réponse générée sur un corpus ou un stock qui ont changé depuis la recherche : périmée
+        if (lookup.generation != corpusGeneration || ("STOCK".equals(queryType) && lookup.productEpoch != productEpoch)) {
+            log.debug("Réponse non mise en cache : données modifiées pendant la génération");
+            return;
+        }
+
+        Duration entryTtl = "STOCK".equals(queryType) ? stockTtl : ttl;
+        entries.put(lookup.key, new Entry(lookup.key, identifiers(lookup.key), lookup.embedding, answer,
+            System.nanoTime() + entryTtl.toNanos()));
+
+        // Éviction : entrées expirées d'abord, puis les moins récemment utilisées
+        if (entries.size() > maxEntries) {
+            entries.values().removeIf(Entry::isExpired);
+        }
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while (entries.size() > maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductChanged(ProductChangedEvent event) {
+        productEpoch++;
+        entries.keySet().removeIf(key -> key.startsWith("STOCK|"));
+    }
+
+    // Niveau sémantique actif : les questions hors CSV/STOCK sont embeddées à la recherche
+    public boolean semanticEnabled() {
+        return enabled;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void invalidateIfCorpusChanged() {
+        long current = corpusRegistry.current().generation();
+        if (current != corpusGeneration) {
+            log.info("🧹 Corpus ré-indexé - cache de réponses vidé ({} entrées)", entries.size());
+            entries.clear();
+            corpusGeneration = current;
+        }
+    }
+
+    private float[] embed(String query) {
+        try {
+            return embeddingModel.embed(query);
+        } catch (Exception e) {
+            log.debug("Embedding de la question impossible, niveau sémantique ignoré : {}", e.getMessage());
+            return null;
+        }
+    }
+
+    // Mots de la question normalisée contenant un chiffre : années, quantités, SKU...
+    private static Set<String> identifiers(String key) {
+        Set<String> identifiers = new HashSet<>();
+        for (String token : key.substring(key.indexOf('|') + 1).split(" ")) {
+            if (token.chars().anyMatch(Character::isDigit)) {
+                identifiers.add(token);
+            }
+        }
+        return identifiers;
+    }
+
+    static String normalize(String query) {
+        return FrenchAnalyzer.fold(query).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return (normA == 0 || normB == 0) ? 0 : dot / Math.sqrt(normA * normB);
+    }
+
+    private record Entry(String key, Set<String> identifiers, float[] embedding, String answer, long expiresAtNanos) {
+        boolean isExpired() {
+            return System.nanoTime() - expiresAtNanos > 0;
+        }
+    }
+
+    /**
+     * Résultat d'une recherche en cache : {@code answer} est null en cas d'absence ;
+     * generation et productEpoch datent les données lues par la réponse à mémoriser
+     */
+    public record Lookup(String key, float[] embedding, String answer, long generation, long productEpoch) {
+        static final Lookup BYPASS = new Lookup(null, null, null, 0, 0);
+
+        public boolean hit() {
+            return answer != null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.rayen.miniprojet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Métriques du pipeline de chat, exportées via /actuator/prometheus :
+ * - chat.request{route, outcome} : latence de bout en bout (histogramme)
+ * - chat.stage{stage, route} : routage, contexte, appel LLM...
+ * - chat.tokens{route, type=prompt|completion} : tokens consommés par appel au modèle
+ * - chat.errors{route, exception} : erreurs par type
+ */
+@Component
+@RequiredArgsConstructor
+public class ChatMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Chronomètre une étape et retourne son résultat (y compris en cas d'exception)
+     */
+    public <T> T stage(String stage, String route, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            recordStage(stage, route, System.nanoTime() - start);
+        }
+    }
+
+    public void recordStage(String stage, String route, long nanos) {
+        Timer.builder("chat.stage")
+            .description("Durée de chaque étape du pipeline de chat")
+            .tag("stage", stage)
+            .tag("route", route)
+            .register(meterRegistry)
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Latence de bout en bout ; outcome = llm, cache, fast_path, coalesced (résultat d'une question
+     * identique en cours), rejected ou error
+     */
+    public void recordRequest(String route, String outcome, long startNanos) {
+        Timer.builder("chat.request")
+            .description("Latence de bout en bout d'une question")
+            .tag("route", route)
+            .tag("outcome", outcome)
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Tokens rapportés par le modèle (prompt + complétion) ; ignoré si le modèle ne les fournit pas
+     */
+    public void recordUsage(String route, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens(route, "prompt", usage.getPromptTokens());
+        recordTokens(route, "completion", usage.getGenerationTokens());
+    }
+
+    public void recordError(String route, Throwable error) {
+        Counter.builder("chat.errors")
+            .description("Erreurs du pipeline de chat par type")
+            .tag("route", route)
+            .tag("exception", error.getClass().getSimpleName())
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private void recordTokens(String route, String type, Long tokens) {
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        DistributionSummary.builder("chat.tokens")
+            .description("Tokens par appel au modèle")
+            .baseUnit("tokens")
+            .tag("route", route)
+            .tag("type", type)
+            .register(meterRegistry)
+            .record(tokens);
+    }
+}
@@ -0,0 +1,329 @@
+package com.rayen.miniprojet.services;
+
+import com.rayen.miniprojet.rag.FrenchAnalyzer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table CSV en mémoire, stockée par colonnes typées :
+ * entiers → int[], décimaux → double[], texte → int[] de codes + dictionnaire de valeurs.
+ *
+ * Construite en une passe par {@link Builder}, puis interrogée sans re-parsing.
+ */
+public final class ColumnarTable {
+
+    public enum Type { INT, DOUBLE, STRING }
+
+    static final int NULL_INT = Integer.MIN_VALUE;
+    static final int NULL_CODE = -1;
+    private static final int MAX_BREAKDOWN_GROUPS = 30;
+    // Au-delà, la colonne est considérée comme du texte libre et ne sert pas de filtre
+    private static final int MAX_FILTER_DICTIONARY = 5000;
+
+    private final String[] names;
+    private final Type[] types;
+    private final int rowCount;
+    private final int[][] ints;
+    private final double[][] doubles;
+    private final int[][] codes;
+    private final String[][] dictionaries;
+    // Valeurs normalisées (minuscules, sans accents) pour reconnaître les valeurs citées dans une question
+    private final String[][] foldedDictionaries;
+
+    private ColumnarTable(String[] names, Type[] types, int rowCount,
+                          int[][] ints, double[][] doubles, int[][] codes, String[][] dictionaries) {
+        this.names = names;
+        this.types = types;
+        this.rowCount = rowCount;
+        this.ints = ints;
+        this.doubles = doubles;
+        this.codes = codes;
+        this.dictionaries = dictionaries;
+        this.foldedDictionaries = new String[names.length][];
+        for (int c = 0; c < names.length; c++) {
+            if (types[c] == Type.STRING && dictionaries[c].length <= MAX_FILTER_DICTIONARY) {
+                foldedDictionaries[c] = Arrays.stream(dictionaries[c]).map(ColumnarTable::normalize).toArray(String[]::new);
+            }
+        }
+    }
+
+    public int rowCount() {
+        return rowCount;
+    }
+
+    public int columnCount() {
+        return names.length;
+    }
+
+    /**
+     * Estimation de l'empreinte mémoire (tableaux + dictionnaires)
+     */
+    public long memoryBytes() {
+        long bytes = 64;
+        for (int c = 0; c < names.length; c++) {
+            switch (types[c]) {
+                case INT -> bytes += 16 + 4L * ints[c].length;
+                case DOUBLE -> bytes += 16 + 8L * doubles[c].length;
+                case STRING -> {
+                    bytes += 16 + 4L * codes[c].length;
+                    for (String value : dictionaries[c]) {
+                        bytes += 56 + value.length();
+                    }
+                    if (foldedDictionaries[c] != null) {
+                        bytes += 56L * foldedDictionaries[c].length;
+                    }
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Agrégats ciblés sur la question : les valeurs de catégorie citées dans la question
+     * (ex. "région Nord") deviennent des filtres, puis les colonnes numériques sont
+     * agrégées sur les lignes retenues, avec un détail par une autre catégorie.
+     * Retourne une chaîne vide si la question ne cite aucune valeur.
+     */
+    public String focusedAggregates(String question) {
+        String folded = " " + normalize(question) + " ";
+
+        // 1. Filtres : pour chaque colonne texte, la plus longue valeur citée dans la question
+        Map<Integer, Integer> filters = new LinkedHashMap<>();
+        for (int c = 0; c < names.length; c++) {
+            String[] dictionary = foldedDictionaries[c];
+            if (dictionary == null) {
+                continue;
+            }
+            int best = NULL_CODE;
+            for (int code = 0; code < dictionary.length; code++) {
+                String value = dictionary[code];
+                if (value.length() >= 2 && folded.contains(" " + value + " ")
+                        && (best == NULL_CODE || value.length() > dictionary[best].length())) {
+                    best = code;
+                }
+            }
+            if (best != NULL_CODE) {
+                filters.put(c, best);
+            }
+        }
+        if (filters.isEmpty()) {
+            return "";
+        }
+
+        // 2. Sélection des lignes (scan colonne par colonne)
+        boolean[] selected = new boolean[rowCount];
+        Arrays.fill(selected, true);
+        for (Map.Entry<Integer, Integer> filter : filters.entrySet()) {
+            int[] column = codes[filter.getKey()];
+            int code = filter.getValue();
+            for (int r = 0; r < rowCount; r++) {
+                selected[r] &= column[r] == code;
+            }
+        }
+        int matched = 0;
+        for (boolean s : selected) {
+            if (s) {
+                matched++;
+            }
+        }
+
+        // 3. Agrégats numériques sur les lignes retenues
+        StringBuilder out = new StringBuilder("FILTRE ");
+        List<String> labels = new ArrayList<>();
+        filters.forEach((c, code) -> labels.add(names[c] + " = " + dictionaries[c][code]));
+        out.append(String.join(" ET ", labels)).append(" : ").append(matched).append(" lignes\n");
+
+        List<Integer> numericColumns = new ArrayList<>();
+        for (int c = 0; c < names.length; c++) {
+            if (types[c] != Type.STRING) {
+                numericColumns.add(c);
+                CsvProfile.NumericStats stats = new CsvProfile.NumericStats();
+                for (int r = 0; r < rowCount; r++) {
+                    if (selected[r] && !isNull(c, r)) {
+                        stats.add(value(c, r));
+                    }
+                }
+                if (stats.count > 0) {
+                    out.append("- ").append(names[c])
+                       .append(" : total=").append(CsvProfile.format(stats.sum))
+                       .append(", moyenne=").append(CsvProfile.format(stats.sum / stats.count))
+                       .append(", min=").append(CsvProfile.format(stats.min))
+                       .append(", max=").append(CsvProfile.format(stats.max)).append("\n");
+                }
+            }
+        }
+
+        // 4. Détail par la première autre catégorie (peu de valeurs sur les lignes retenues)
+        for (int c = 0; c < names.length; c++) {
+            if (types[c] != Type.STRING || filters.containsKey(c) || numericColumns.isEmpty()) {
+                continue;
+            }
+            Map<Integer, double[]> sums = new LinkedHashMap<>();
+            for (int r = 0; r < rowCount && sums.size() <= MAX_BREAKDOWN_GROUPS; r++) {
+                if (!selected[r] || codes[c][r] == NULL_CODE) {
+                    continue;
+                }
+                double[] groupSums = sums.computeIfAbsent(codes[c][r], k -> new double[numericColumns.size()]);
+                for (int i = 0; i < numericColumns.size(); i++) {
+                    int n = numericColumns.get(i);
+                    if (!isNull(n, r)) {
+                        groupSums[i] += value(n, r);
+                    }
+                }
+            }
+            if (sums.isEmpty() || sums.size() > MAX_BREAKDOWN_GROUPS) {
+                continue;
+            }
+            String[] dictionary = dictionaries[c];
+            out.append("DÉTAIL PAR ").append(names[c]).append(" :\n");
+            sums.forEach((code, groupSums) -> {
+                out.append("- ").append(dictionary[code]).append(" :");
+                for (int i = 0; i < numericColumns.size(); i++) {
+                    out.append(" ").append(names[numericColumns.get(i)]).append("=")
+                       .append(CsvProfile.format(groupSums[i]));
+                }
+                out.append("\n");
+            });
+            break;
+        }
+        return out.toString();
+    }
+
+    private static String normalize(String text) {
+        return FrenchAnalyzer.fold(text).replaceAll("[^a-z0-9]+", " ").trim();
+    }
+
+    private boolean isNull(int column, int row) {
+        return switch (types[column]) {
+            case INT -> ints[column][row] == NULL_INT;
+            case DOUBLE -> Double.isNaN(doubles[column][row]);
+            case STRING -> codes[column][row] == NULL_CODE;
+        };
+    }
+
+    private double value(int column, int row) {
+        return types[column] == Type.INT ? ints[column][row] : doubles[column][row];
+    }
+
+    /**
+     * Construction ligne par ligne. Une colonne reste numérique tant que toutes ses valeurs
+     * le sont ; à la première valeur texte elle bascule en codes de dictionnaire.
+     */
+    static final class Builder {
+        private final String[] names;
+        private final ColumnBuilder[] columns;
+        private int rowCount;
+
+        Builder(String[] names) {
+            this.names = names.clone();
+            this.columns = new ColumnBuilder[names.length];
+            for (int i = 0; i < names.length; i++) {
+                columns[i] = new ColumnBuilder();
+            }
+        }
+
+        void accept(String[] row) {
+            for (int c = 0; c < columns.length; c++) {
+                String cell = c < row.length && row[c] != null ? row[c].trim() : "";
+                columns[c].add(rowCount, cell);
+            }
+            rowCount++;
+        }
+
+        ColumnarTable build() {
+            int width = columns.length;
+            Type[] types = new Type[width];
+            int[][] ints = new int[width][];
+            double[][] doubles = new double[width][];
+            int[][] codes = new int[width][];
+            String[][] dictionaries = new String[width][];
+
+            for (int c = 0; c < width; c++) {
+                ColumnBuilder column = columns[c];
+                if (column.numeric && column.nonEmpty > 0) {
+                    double[] values = Arrays.copyOf(column.numbers, rowCount);
+                    if (column.integral) {
+                        types[c] = Type.INT;
+                        ints[c] = new int[rowCount];
+                        for (int r = 0; r < rowCount; r++) {
+                            ints[c][r] = Double.isNaN(values[r]) ? NULL_INT : (int) values[r];
+                        }
+                    } else {
+                        types[c] = Type.DOUBLE;
+                        doubles[c] = values;
+                    }
+                } else {
+                    column.switchToDictionary(rowCount);
+                    types[c] = Type.STRING;
+                    codes[c] = Arrays.copyOf(column.codes, rowCount);
+                    dictionaries[c] = column.dictionaryValues.toArray(String[]::new);
+                }
+            }
+            return new ColumnarTable(names, types, rowCount, ints, doubles, codes, dictionaries);
+        }
+    }
+
+    private static final class ColumnBuilder {
+        boolean numeric = true;
+        boolean integral = true;
+        int nonEmpty;
+        double[] numbers = new double[1024];
+        int[] codes;
+        Map<String, Integer> dictionary;
+        List<String> dictionaryValues;
+
+        void add(int row, String cell) {
+            if (!cell.isEmpty()) {
+                nonEmpty++;
+            }
+            if (numeric) {
+                double value = cell.isEmpty() ? Double.NaN : CsvProfile.parseNumber(cell);
+                if (cell.isEmpty() || !Double.isNaN(value)) {
+                    if (row == numbers.length) {
+                        numbers = Arrays.copyOf(numbers, row * 2);
+                    }
+                    numbers[row] = value;
+                    if (!Double.isNaN(value) && (value != Math.rint(value) || Math.abs(value) >= Integer.MAX_VALUE)) {
+                        integral = false;
+                    }
+                    return;
+                }
+                switchToDictionary(row);
+            }
+            if (row == codes.length) {
+                codes = Arrays.copyOf(codes, row * 2);
+            }
+            codes[row] = cell.isEmpty() ? NULL_CODE : encode(cell);
+        }
+
+        // Bascule en colonne texte : les valeurs numériques déjà lues sont ré-encodées
+        void switchToDictionary(int rows) {
+            if (!numeric) {
+                return;
+            }
+            numeric = false;
+            dictionary = new HashMap<>();
+            dictionaryValues = new ArrayList<>();
+            codes = new int[Math.max(numbers.length, 16)];
+            for (int r = 0; r < rows; r++) {
+                codes[r] = Double.isNaN(numbers[r]) ? NULL_CODE : encode(CsvProfile.format(numbers[r]));
+            }
+            numbers = null;
+        }
+
+        private int encode(String value) {
+            Integer code = dictionary.get(value);
+            if (code == null) {
+                code = dictionaryValues.size();
+                dictionary.put(value, code);
+                dictionaryValues.add(value);
+            }
+            return code;
+        }
+    }
+}
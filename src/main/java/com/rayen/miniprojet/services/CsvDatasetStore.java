@@ -0,0 +1,164 @@
+package com.rayen.miniprojet.services;
+
+import com.opencsv.CSVReader;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sessions CSV : le fichier est parsé une seule fois en table colonnaire, puis les
+ * questions suivantes référencent le dataset par son identifiant.
+ *
+ * Les sessions sont évincées par LRU dès que la mémoire totale estimée dépasse le budget.
+ */
+@Service
+@Slf4j
+public class CsvDatasetStore {
+
+    private final long memoryBudgetBytes;
+    private final Timer parseTimer;
+
+    // Ordre d'accès → LRU
+    private final LinkedHashMap<String, CsvDataset> datasets = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    public CsvDatasetStore(MeterRegistry meterRegistry,
+                           @Value("${csv.sessions.memory-budget-mb:256}") long memoryBudgetMb) {
+        this.memoryBudgetBytes = memoryBudgetMb * 1024 * 1024;
+        this.parseTimer = Timer.builder("csv.sessions.parse")
+            .description("Durée de parsing d'un CSV en table colonnaire")
+            .register(meterRegistry);
+        Gauge.builder("csv.sessions.count", this, CsvDatasetStore::size)
+            .description("Datasets CSV en mémoire")
+            .register(meterRegistry);
+        Gauge.builder("csv.sessions.memory", this, CsvDatasetStore::usedBytes)
+            .description("Mémoire estimée des datasets CSV")
+            .baseUnit("bytes")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Parse le fichier en une passe (table colonnaire + résumé agrégé) et l'enregistre
+     */
+    public CsvDataset upload(MultipartFile file) throws Exception {
+        long start = System.nanoTime();
+        ColumnarTable table;
+        String summary;
+
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+             CSVReader csvReader = CsvService.newCsvReader(reader)) {
+
+            String[] header = CsvService.readHeader(csvReader);
+            if (header == null) {
+                throw new IllegalArgumentException("Le fichier CSV est vide");
+            }
+
+            CsvProfile profile = new CsvProfile(header);
+            ColumnarTable.Builder builder = new ColumnarTable.Builder(header);
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
+                profile.accept(row);
+                builder.accept(row);
+            }
+            table = builder.build();
+            summary = profile.render();
+        }
+
+        long parseNanos = System.nanoTime() - start;
+        parseTimer.record(parseNanos, TimeUnit.NANOSECONDS);
+
+        long memory = table.memoryBytes() + summary.length() * 2L;
+        if (memory > memoryBudgetBytes) {
+            throw new IllegalArgumentException("Le dataset (" + memory / 1024 + " Ko) dépasse le budget mémoire des sessions CSV");
+        }
+
+        CsvDataset dataset = new CsvDataset(UUID.randomUUID().toString(), file.getOriginalFilename(),
+            table, summary, memory, TimeUnit.NANOSECONDS.toMillis(parseNanos), Instant.now());
+
+        synchronized (this) {
+            datasets.put(dataset.id(), dataset);
+            usedBytes += memory;
+            evictOverBudget();
+        }
+
+        log.info("📦 Dataset CSV {} : {} lignes × {} colonnes parsées en {} ms ({} Ko en mémoire)",
+            dataset.id(), table.rowCount(), table.columnCount(), dataset.parseMillis(), memory / 1024);
+        return dataset;
+    }
+
+    public synchronized Optional<CsvDataset> get(String id) {
+        return Optional.ofNullable(datasets.get(id));
+    }
+
+    public synchronized boolean remove(String id) {
+        CsvDataset removed = datasets.remove(id);
+        if (removed != null) {
+            usedBytes -= removed.memoryBytes();
+        }
+        return removed != null;
+    }
+
+    public synchronized List<CsvDataset> list() {
+        return new ArrayList<>(datasets.values());
+    }
+
+    public synchronized int size() {
+        return datasets.size();
+    }
+
+    public synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Données fournies au modèle : résumé complet + agrégats ciblés par la question
+     */
+    public String describe(CsvDataset dataset, String question) {
+        String focused = dataset.table().focusedAggregates(question);
+        if (focused.isEmpty()) {
+            return dataset.summary();
+        }
+        return dataset.summary() + "\nAGRÉGATS CIBLÉS SUR LA QUESTION :\n" + focused;
+    }
+
+    // Appelé sous verrou
+    private void evictOverBudget() {
+        Iterator<Map.Entry<String, CsvDataset>> it = datasets.entrySet().iterator();
+        while (usedBytes > memoryBudgetBytes && it.hasNext()) {
+            CsvDataset evicted = it.next().getValue();
+            it.remove();
+            usedBytes -= evicted.memoryBytes();
+            log.info("🧹 Dataset CSV {} évincé (budget mémoire atteint)", evicted.id());
+        }
+    }
+
+    public record CsvDataset(String id, String fileName, ColumnarTable table, String summary,
+                             long memoryBytes, long parseMillis, Instant createdAt) {
+
+        public DatasetInfo info() {
+            return new DatasetInfo(id, fileName, table.rowCount(), table.columnCount(), memoryBytes, parseMillis, createdAt);
+        }
+    }
+
+    // Vue JSON d'un dataset (sans les données)
+    public record DatasetInfo(String datasetId, String fileName, int rows, int columns,
+                              long memoryBytes, long parseMillis, Instant createdAt) {}
+}
@@ -0,0 +1,242 @@
+package com.rayen.miniprojet.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Profil d'un fichier CSV calculé en une seule passe et en mémoire bornée :
+ * type de chaque colonne, statistiques des colonnes numériques et agrégats
+ * (nombre de lignes, somme, min, max) par valeur de chaque colonne catégorielle.
+ *
+ * Seules les colonnes avec au plus {@link #MAX_GROUPS} valeurs distinctes sont
+ * considérées comme catégorielles ; au-delà leurs groupes sont abandonnés.
+ * Au-delà de {@link #MAX_COLUMNS} colonnes, les suivantes sont ignorées (signalé dans le résumé).
+ */
+class CsvProfile {
+
+    static final int MAX_GROUPS = 30;
+    static final int MAX_COLUMNS = 64;
+    private static final int SAMPLE_ROWS = 5;
+    private static final Pattern NUMBER = Pattern.compile("[+-]?(\\d+\\.?\\d*|\\.\\d+)([eE][+-]?\\d+)?");
+    // Milliers groupés par 3 avec un même séparateur (espaces, apostrophe, '.' ou ','), décimale éventuelle
+    private static final Pattern GROUPED = Pattern.compile(
+        "([+-]?\\d{1,3})((?:([ \\u00a0\\u202f\\u2009'.,])\\d{3})(?:\\3\\d{3})*)([.,]\\d+)?");
+
+    private final String[] headers;
+    private final Column[] columns;
+    private final List<String[]> sample = new ArrayList<>(SAMPLE_ROWS);
+    private final int ignoredColumns;
+    private long rowCount;
+
+    CsvProfile(String[] header) {
+        int width = Math.min(header.length, MAX_COLUMNS);
+        this.ignoredColumns = header.length - width;
+        this.headers = new String[width];
+        this.columns = new Column[width];
+        for (int i = 0; i < width; i++) {
+            headers[i] = header[i] == null || header[i].isBlank() ? "Colonne " + (i + 1) : header[i].trim();
+            columns[i] = new Column();
+        }
+    }
+
+    /**
+     * Intègre une ligne de données
+     */
+    void accept(String[] row) {
+        rowCount++;
+        if (sample.size() < SAMPLE_ROWS) {
+            sample.add(row);
+        }
+
+        int width = columns.length;
+        String[] cells = new String[width];
+        double[] values = new double[width];
+        for (int c = 0; c < width; c++) {
+            String cell = c < row.length && row[c] != null ? row[c].trim() : "";
+            cells[c] = cell;
+            values[c] = Double.NaN;
+            if (cell.isEmpty()) {
+                continue;
+            }
+            Column column = columns[c];
+            column.nonEmpty++;
+            double value = parseNumber(cell);
+            values[c] = value;
+            if (!Double.isNaN(value)) {
+                column.numericCount++;
+                column.stats.add(value);
+            }
+        }
+
+        // Agrégats par valeur pour chaque colonne encore candidate au rôle de catégorie
+        for (int c = 0; c < width; c++) {
+            Column column = columns[c];
+            if (column.groups == null || cells[c].isEmpty()) {
+                continue;
+            }
+            Group group = column.groups.get(cells[c]);
+            if (group == null) {
+                if (column.groups.size() >= MAX_GROUPS) {
+                    column.groups = null; // trop de valeurs distinctes : pas une catégorie
+                    continue;
+                }
+                group = new Group(width);
+                column.groups.put(cells[c], group);
+            }
+            group.rows++;
+            for (int n = 0; n < width; n++) {
+                if (n != c && !Double.isNaN(values[n]) && columns[n].isNumericSoFar()) {
+                    group.stats[n].add(values[n]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Résumé compact destiné au prompt (remplace les lignes brutes)
+     */
+    String render() {
+        StringBuilder out = new StringBuilder();
+        out.append("Résumé du fichier CSV (analyse complète de ").append(rowCount)
+           .append(" lignes, ").append(columns.length).append(" colonnes) :\n");
+        if (ignoredColumns > 0) {
+            out.append("⚠️ ").append(ignoredColumns).append(" colonnes au-delà des ").append(MAX_COLUMNS)
+               .append(" premières ne sont pas analysées\n");
+        }
+        out.append("\n");
+
+        out.append("COLONNES :\n");
+        for (int c = 0; c < columns.length; c++) {
+            Column column = columns[c];
+            out.append("- ").append(headers[c]);
+            if (column.isNumeric()) {
+                NumericStats s = column.stats;
+                out.append(" (numérique) : total=").append(format(s.sum))
+                   .append(", moyenne=").append(format(s.sum / s.count))
+                   .append(", min=").append(format(s.min))
+                   .append(", max=").append(format(s.max));
+            } else if (column.groups != null) {
+                out.append(" (catégorie, ").append(column.groups.size()).append(" valeurs) : ")
+                   .append(String.join(", ", column.groups.keySet()));
+            } else {
+                out.append(" (texte, plus de ").append(MAX_GROUPS).append(" valeurs distinctes)");
+            }
+            if (column.nonEmpty < rowCount) {
+                out.append(" [").append(rowCount - column.nonEmpty).append(" vides]");
+            }
+            out.append("\n");
+        }
+
+        for (int c = 0; c < columns.length; c++) {
+            Column column = columns[c];
+            if (column.isNumeric() || column.groups == null || column.groups.isEmpty()) {
+                continue;
+            }
+            out.append("\nAGRÉGATS PAR ").append(headers[c].toUpperCase(Locale.ROOT)).append(" :\n");
+            for (Map.Entry<String, Group> entry : column.groups.entrySet()) {
+                Group group = entry.getValue();
+                out.append("- ").append(entry.getKey()).append(" : ").append(group.rows).append(" lignes");
+                for (int n = 0; n < columns.length; n++) {
+                    NumericStats s = group.stats[n];
+                    if (n == c || !columns[n].isNumeric() || s.count == 0) {
+                        continue;
+                    }
+                    out.append(" ; ").append(headers[n])
+                       .append(" total=").append(format(s.sum))
+                       .append(" min=").append(format(s.min))
+                       .append(" max=").append(format(s.max));
+                }
+                out.append("\n");
+            }
+        }
+
+        out.append("\nAPERÇU (").append(sample.size()).append(" premières lignes) :\n");
+        out.append(String.join(" | ", headers)).append("\n");
+        for (String[] row : sample) {
+            out.append(String.join(" | ", Arrays.copyOf(row, Math.min(row.length, headers.length)))).append("\n");
+        }
+        return out.toString();
+    }
+
+    long rowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Nombre au format anglais ou français, milliers groupés compris ("1 234,5", "1.234.567,8",
+     * "1,234.5") ; NaN si la cellule n'est pas numérique. Un seul groupe sans décimale est ambigu :
+     * "1,234" et "1.234" valent 1.234 (virgule décimale française)
+     */
+    static double parseNumber(String cell) {
+        String normalized = cell;
+        Matcher grouped = GROUPED.matcher(cell);
+        String separator = grouped.matches() ? grouped.group(3) : null;
+        String decimals = separator != null ? grouped.group(4) : null;
+        boolean ambiguous = separator != null && decimals == null
+            && (separator.equals(".") || separator.equals(",")) && grouped.group(2).length() == 4;
+        if (separator != null && !ambiguous && (decimals == null || !decimals.startsWith(separator))) {
+            normalized = grouped.group(1) + grouped.group(2).replace(separator, "")
+                + (decimals == null ? "" : "." + decimals.substring(1));
+        } else if (normalized.indexOf(',') >= 0 && normalized.indexOf('.') < 0) {
+            normalized = normalized.replace(',', '.');
+        }
+        if (!NUMBER.matcher(normalized).matches()) {
+            return Double.NaN;
+        }
+        return Double.parseDouble(normalized);
+    }
+
+    static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static final class Column {
+        long nonEmpty;
+        long numericCount;
+        final NumericStats stats = new NumericStats();
+        Map<String, Group> groups = new LinkedHashMap<>();
+
+        boolean isNumericSoFar() {
+            return numericCount == nonEmpty;
+        }
+
+        boolean isNumeric() {
+            return nonEmpty > 0 && numericCount == nonEmpty;
+        }
+    }
+
+    private static final class Group {
+        long rows;
+        final NumericStats[] stats;
+
+        Group(int width) {
+            stats = new NumericStats[width];
+            for (int i = 0; i < width; i++) {
+                stats[i] = new NumericStats();
+            }
+        }
+    }
+
+    static final class NumericStats {
+        long count;
+        double sum;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+
+        void add(double value) {
+            count++;
+            sum += value;
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+    }
+}
@@ -1,35 +1,110 @@
 package com.rayen.miniprojet.services;
 
+import com.opencsv.CSVParserBuilder;
 import com.opencsv.CSVReader;
+import com.opencsv.CSVReaderBuilder;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
-import java.io.Reader;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
 
 @Service
+@Slf4j
 public class CsvService {
 
+    // Début de la ligne d'en-tête examiné pour détecter le séparateur (un en-tête plus long est lu en entier ensuite)
+    private static final int HEADER_LOOKAHEAD = 64 * 1024;
+
+	/**
+	 * Analyse le fichier en une seule passe (mémoire constante) : le prompt reçoit un
+	 * résumé agrégé couvrant TOUT le fichier au lieu des 50 premières lignes brutes.
+	 */
 	public String analyzeCsvContent(MultipartFile file) {
-        try (Reader reader = new InputStreamReader(file.getInputStream());
-             CSVReader csvReader = new CSVReader(reader)) {
-
-            List<String[]> rows = csvReader.readAll();
-            StringBuilder content = new StringBuilder();
-            
-            // On limite à 50 lignes pour ne pas saturer la mémoire du petit modèle 3B
-            int limit = Math.min(rows.size(), 50); 
-            
-            content.append("Voici les données du fichier CSV (50 premières lignes) :\n");
-            for (int i = 0; i < limit; i++) {
-                content.append(String.join(" | ", rows.get(i))).append("\n");
+        long start = System.nanoTime();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8));
+             CSVReader csvReader = newCsvReader(reader)) {
+
+            String[] header = readHeader(csvReader);
+            if (header == null) {
+                return "Le fichier CSV est vide.";
+            }
+
+            CsvProfile profile = new CsvProfile(header);
+            String[] row;
+            while ((row = csvReader.readNext()) != null) {
+                profile.accept(row);
             }
-            
-            return content.toString();
+
+            log.info("📊 CSV analysé : {} lignes en {} ms",
+                     profile.rowCount(), (System.nanoTime() - start) / 1_000_000);
+            return profile.render();
 
         } catch (Exception e) {
             return "Erreur lors de la lecture du fichier CSV : " + e.getMessage();
         }
     }
+
+    /**
+     * Crée le lecteur CSV en détectant le séparateur (',' ou ';') sur le début de la ligne d'en-tête
+     */
+    static CSVReader newCsvReader(BufferedReader reader) throws IOException {
+        // Jamais plus de HEADER_LOOKAHEAD caractères lus : le reset() reste valide quelle que soit la ligne
+        char[] lookahead = new char[HEADER_LOOKAHEAD];
+        reader.mark(HEADER_LOOKAHEAD);
+        int length = 0;
+        int read;
+        while (length < lookahead.length && (read = reader.read(lookahead, length, lookahead.length - length)) > 0) {
+            length += read;
+            if (indexOfLineEnd(lookahead, length) >= 0) {
+                break;
+            }
+        }
+        reader.reset();
+
+        int end = indexOfLineEnd(lookahead, length);
+        String firstLine = new String(lookahead, 0, end >= 0 ? end : length);
+        char separator = ',';
+        if (count(firstLine, ';') > count(firstLine, ',')) {
+            separator = ';';
+        }
+
+        return new CSVReaderBuilder(reader)
+                .withCSVParser(new CSVParserBuilder().withSeparator(separator).build())
+                .build();
+    }
+
+    /**
+     * Lit la ligne d'en-tête (sans BOM UTF-8) ; null si le fichier est vide
+     */
+    static String[] readHeader(CSVReader csvReader) throws Exception {
+        String[] header = csvReader.readNext();
+        if (header != null && header.length > 0 && header[0] != null && header[0].startsWith("\uFEFF")) {
+            header[0] = header[0].substring(1);
+        }
+        return header;
+    }
+
+    private static int indexOfLineEnd(char[] chars, int length) {
+        for (int i = 0; i < length; i++) {
+            if (chars[i] == '\n' || chars[i] == '\r') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int count(String line, char c) {
+        int count = 0;
+        for (int i = 0; i < line.length(); i++) {
+            if (line.charAt(i) == c) {
+                count++;
+            }
+        }
+        return count;
+    }
 }
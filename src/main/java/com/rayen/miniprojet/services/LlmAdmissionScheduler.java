@@ -0,0 +1,229 @@
+package com.rayen.miniprojet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Contrôle d'admission devant le modèle : limite le nombre d'appels simultanés à ce
+ * que l'instance Ollama locale peut servir.
+ *
+ * Les requêtes en attente sont servies par priorité de route (STOCK, puis DOCUMENT,
+ * puis CSV) et dans l'ordre d'arrivée pour une même priorité. Si la file est pleine
+ * ou si l'attente dépasse le maximum, la requête est rejetée avec une estimation du
+ * délai avant nouvel essai.
+ */
+@Service
+@Slf4j
+public class LlmAdmissionScheduler {
+
+    private static final Comparator<Waiter> ORDER =
+        Comparator.comparingInt(Waiter::priority).thenComparingLong(Waiter::sequence);
+
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final long maxWaitNanos;
+    private final MeterRegistry meterRegistry;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(ORDER);
+    private int available;
+    private int active;
+    private long sequence;
+    // Durée moyenne (lissée) d'occupation d'une place, pour estimer le Retry-After
+    private double averageHoldSeconds = 5.0;
+
+    public LlmAdmissionScheduler(MeterRegistry meterRegistry,
+                                 @Value("${llm.admission.max-concurrent:2}") int maxConcurrent,
+                                 @Value("${llm.admission.max-queue:50}") int maxQueue,
+                                 @Value("${llm.admission.max-wait-seconds:120}") long maxWaitSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueue = maxQueue;
+        this.maxWaitNanos = TimeUnit.SECONDS.toNanos(maxWaitSeconds);
+        this.available = maxConcurrent;
+
+        Gauge.builder("llm.admission.queue.depth", this, LlmAdmissionScheduler::queueDepth)
+            .description("Requêtes en attente d'un appel au modèle")
+            .register(meterRegistry);
+        Gauge.builder("llm.admission.active", this, LlmAdmissionScheduler::activeCalls)
+            .description("Appels au modèle en cours")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Attend une place pour appeler le modèle. La place doit être rendue via {@link Permit#close()}.
+     *
+     * @throws AdmissionRejectedException si la file est pleine ou l'attente trop longue
+     */
+    public Permit acquire(String route) {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            if (available > 0 && queue.isEmpty()) {
+                available--;
+                return admitted(route, start);
+            }
+
+            if (queue.size() >= maxQueue) {
+                throw rejected(route, "queue_full");
+            }
+
+            Waiter waiter = new Waiter(priority(route), sequence++, lock.newCondition());
+            queue.add(waiter);
+            long remaining = maxWaitNanos;
+            try {
+                while (!waiter.granted) {
+                    if (remaining <= 0) {
+                        queue.remove(waiter);
+                        throw rejected(route, "timeout");
+                    }
+                    remaining = waiter.condition.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                if (waiter.granted) {
+                    grantNext();
+                } else {
+                    queue.remove(waiter);
+                }
+                throw new AdmissionRejectedException("Attente interrompue", retryAfterSeconds());
+            }
+            return admitted(route, start);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queueDepth() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int activeCalls() {
+        lock.lock();
+        try {
+            return active;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Appelé sous verrou
+    private Permit admitted(String route, long start) {
+        active++;
+        long waited = System.nanoTime() - start;
+        Timer.builder("llm.admission.wait")
+            .description("Temps d'attente avant l'appel au modèle")
+            .tag("route", route)
+            .register(meterRegistry)
+            .record(waited, TimeUnit.NANOSECONDS);
+        if (waited > TimeUnit.MILLISECONDS.toNanos(100)) {
+            log.info("🚦 Route {} admise après {} ms d'attente", route, waited / 1_000_000);
+        }
+        return new Permit(System.nanoTime());
+    }
+
+    // Appelé sous verrou
+    private AdmissionRejectedException rejected(String route, String reason) {
+        Counter.builder("llm.admission.rejected")
+            .tag("route", route)
+            .tag("reason", reason)
+            .register(meterRegistry)
+            .increment();
+        long retryAfter = retryAfterSeconds();
+        log.warn("⛔ Modèle saturé ({}) - requête {} rejetée, réessayer dans {} s", reason, route, retryAfter);
+        return new AdmissionRejectedException("Le modèle est saturé, réessayez plus tard", retryAfter);
+    }
+
+    // Appelé sous verrou
+    private long retryAfterSeconds() {
+        double rounds = (double) (queue.size() + 1) / maxConcurrent;
+        return Math.max(1, (long) Math.ceil(rounds * averageHoldSeconds));
+    }
+
+    // Appelé sous verrou : donne la place libérée au prochain en file, sinon la rend au pool
+    private void grantNext() {
+        Waiter next = queue.poll();
+        if (next != null) {
+            next.granted = true;
+            next.condition.signal();
+        } else {
+            available++;
+        }
+    }
+
+    private void release(long heldNanos) {
+        lock.lock();
+        try {
+            active--;
+            averageHoldSeconds = 0.8 * averageHoldSeconds + 0.2 * (heldNanos / 1e9);
+            grantNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int priority(String route) {
+        return switch (route) {
+            case "STOCK" -> 0;
+            case "DOCUMENT" -> 1;
+            default -> 2;
+        };
+    }
+
+    private static final class Waiter {
+        final int priority;
+        final long sequence;
+        final Condition condition;
+        boolean granted;
+
+        Waiter(int priority, long sequence, Condition condition) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.condition = condition;
+        }
+
+        int priority() {
+            return priority;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * Place réservée pour un appel au modèle, à fermer une seule fois en fin d'appel
+     */
+    public final class Permit implements AutoCloseable {
+        private final long acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long acquiredAt) {
+            this.acquiredAt = acquiredAt;
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                release(System.nanoTime() - acquiredAt);
+            }
+        }
+    }
+}
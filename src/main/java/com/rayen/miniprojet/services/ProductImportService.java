@@ -0,0 +1,248 @@
+package com.rayen.miniprojet.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVReader;
+import com.rayen.miniprojet.entities.Product;
+import com.rayen.miniprojet.entities.ProductCatalogListener;
+import com.rayen.miniprojet.entities.ProductChangedEvent;
+import com.rayen.miniprojet.repositories.ProductRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Import en masse du catalogue (CSV ou JSON lines) lu en flux depuis le corps de la requête.
+ *
+ * Les lignes sont traitées par lots : un lot = une transaction, un SELECT des SKU déjà
+ * présents (upsert), des INSERT/UPDATE envoyés en batch JDBC, puis flush + clear du
+ * contexte de persistance. La mémoire reste bornée à un lot quelle que soit la taille du fichier.
+ *
+ * Pas d'événement par ligne pendant l'import : un seul ProductChangedEvent (sku null) par lot,
+ * reçu par les listeners après son commit. Si un lot échoue, les lots précédents restent
+ * validés : le résultat donne les lignes effectivement écrites et l'erreur.
+ */
+@Service
+@Slf4j
+public class ProductImportService {
+
+    public enum Format { CSV, JSON_LINES }
+
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ProductImportService(ProductRepository productRepository,
+                                ApplicationEventPublisher eventPublisher,
+                                PlatformTransactionManager transactionManager,
+                                ObjectMapper objectMapper,
+                                @Value("${products.import.batch-size:500}") int batchSize) {
+        this.productRepository = productRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper.copy().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Importe le flux ; les lignes invalides sont comptées et ignorées.
+     * Une erreur avant le premier commit est relancée ; après, elle est rapportée dans le résultat.
+     */
+    public ImportResult importProducts(InputStream input, Format format) throws Exception {
+        long start = System.nanoTime();
+        ImportCounters counters = new ImportCounters();
+        Map<String, ProductRow> batch = new LinkedHashMap<>();
+        String error = null;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            RowSource source = format == Format.CSV ? csvRows(reader) : jsonRows(reader);
+            ProductRow row;
+            while ((row = nextValid(source, counters)) != null) {
+                batch.put(row.sku(), row); // même SKU répété dans le lot : la dernière ligne gagne
+                if (batch.size() >= batchSize) {
+                    writeBatch(batch, counters);
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch, counters);
+            }
+        } catch (Exception e) {
+            if (counters.committedLots == 0) {
+                throw e;
+            }
+            error = "Lot " + (counters.committedLots + 1) + " annulé (" + e.getClass().getSimpleName() + " : "
+                + e.getMessage() + "), " + counters.committedLots + " lots précédents validés";
+            log.error("❌ Import catalogue interrompu : {}", error, e);
+        }
+
+        long millis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        long written = counters.inserted + counters.updated;
+        ImportResult result = new ImportResult(counters.inserted, counters.updated, counters.rejected,
+            counters.committedLots, error, millis, Math.round(written * 1000.0 / millis));
+        log.info("📥 Import catalogue : {} créés, {} mis à jour, {} rejetés en {} ms ({} lignes/s)",
+            result.inserted(), result.updated(), result.rejected(), millis, result.rowsPerSecond());
+        return result;
+    }
+
+    // Compteurs mis à jour seulement après le commit du lot
+    private void writeBatch(Map<String, ProductRow> batch, ImportCounters counters) {
+        long[] written = transactionTemplate.execute(status -> ProductCatalogListener.withoutEvents(() -> {
+            long inserted = 0;
+            long updated = 0;
+            Map<String, Product> existing = new HashMap<>();
+            for (Product product : productRepository.findBySkuIn(batch.keySet())) {
+                existing.put(product.getSku(), product);
+            }
+            for (ProductRow row : batch.values()) {
+                Product product = existing.get(row.sku());
+                if (product == null) {
+                    entityManager.persist(new Product(row.sku(), row.name(), row.quantity(), row.minThreshold()));
+                    inserted++;
+                } else {
+                    product.setName(row.name());
+                    product.setQuantity(row.quantity());
+                    product.setMinThreshold(row.minThreshold());
+                    updated++;
+                }
+            }
+            entityManager.flush();
+            entityManager.clear();
+            // Un événement pour tout le lot, délivré aux listeners transactionnels après le commit
+            eventPublisher.publishEvent(new ProductChangedEvent(null));
+            return new long[] {inserted, updated};
+        }));
+        counters.inserted += written[0];
+        counters.updated += written[1];
+        counters.committedLots++;
+        batch.clear();
+    }
+
+    private ProductRow nextValid(RowSource source, ImportCounters counters) throws Exception {
+        while (true) {
+            ProductRow row;
+            try {
+                row = source.next();
+            } catch (IllegalArgumentException | JsonProcessingException e) {
+                reject(counters, e.getMessage());
+                continue;
+            }
+            if (row == null) {
+                return null;
+            }
+            if (row.sku() == null || row.sku().isBlank() || row.quantity() == null || row.minThreshold() == null) {
+                reject(counters, "sku, quantity et minThreshold sont obligatoires");
+                continue;
+            }
+            return new ProductRow(row.sku().trim(), row.name() == null ? row.sku().trim() : row.name().trim(),
+                row.quantity(), row.minThreshold());
+        }
+    }
+
+    private void reject(ImportCounters counters, String reason) {
+        counters.rejected++;
+        if (counters.rejected <= 10) {
+            log.warn("⚠️ Ligne ignorée à l'import : {}", reason);
+        }
+    }
+
+    // CSV avec en-tête : sku, name, quantity, minThreshold (ordre libre, séparateur , ou ;)
+    private RowSource csvRows(BufferedReader reader) throws Exception {
+        CSVReader csvReader = CsvService.newCsvReader(reader);
+        String[] header = CsvService.readHeader(csvReader);
+        if (header == null) {
+            return () -> null;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.length; i++) {
+            columns.put(header[i].trim().toLowerCase(Locale.ROOT).replace("_", ""), i);
+        }
+        int sku = column(columns, "sku");
+        int name = columns.getOrDefault("name", -1);
+        int quantity = column(columns, "quantity");
+        int minThreshold = column(columns, "minthreshold");
+
+        return () -> {
+            String[] cells = csvReader.readNext();
+            if (cells == null) {
+                return null;
+            }
+            return new ProductRow(cell(cells, sku), name < 0 ? null : cell(cells, name),
+                integer(cell(cells, quantity)), integer(cell(cells, minThreshold)));
+        };
+    }
+
+    // Un objet JSON par ligne : {"sku":"...","name":"...","quantity":1,"minThreshold":5}
+    private RowSource jsonRows(BufferedReader reader) {
+        return () -> {
+            String line;
+            do {
+                line = reader.readLine();
+                if (line == null) {
+                    return null;
+                }
+            } while (line.isBlank());
+            return objectMapper.readValue(line, ProductRow.class);
+        };
+    }
+
+    private static int column(Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null) {
+            throw new IllegalArgumentException("Colonne obligatoire absente de l'en-tête : " + name);
+        }
+        return index;
+    }
+
+    private static String cell(String[] cells, int index) {
+        return index < cells.length ? cells[index] : null;
+    }
+
+    private static Integer integer(String cell) {
+        if (cell == null || cell.isBlank()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(cell.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Nombre entier invalide : " + cell);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        ProductRow next() throws Exception;
+    }
+
+    private static final class ImportCounters {
+        long inserted;
+        long updated;
+        long rejected;
+        long committedLots;
+    }
+
+    record ProductRow(String sku, String name, Integer quantity, Integer minThreshold) {}
+
+    // inserted/updated : lignes validées ; error non null si l'import s'est arrêté sur un lot en échec
+    public record ImportResult(long inserted, long updated, long rejected, long committedLots, String error,
+                               long millis, long rowsPerSecond) {}
+}
@@ -0,0 +1,122 @@
+package com.rayen.miniprojet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement des questions identiques en cours ("single flight") : la première lance le calcul,
+ * les suivantes arrivées avant sa fin s'y rattachent et reçoivent le même résultat au lieu de
+ * déclencher chacune une génération.
+ *
+ * Clé = route + question normalisée (comme le cache de réponses) ; pour une question CSV, le texte
+ * exact, car il embarque les données. En streaming, un suiveur reçoit aussi les tokens déjà émis.
+ * Les requêtes rattachées sont comptées dans chat.coalesced{route, mode}.
+ * chat.coalesce.enabled=false : chaque requête lance son propre calcul (mesures de charge).
+ */
+@Component
+@Slf4j
+public class RequestCoalescer {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final ConcurrentHashMap<String, CompletableFuture<String>> calls = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Flux<String>> streams = new ConcurrentHashMap<>();
+
+    public RequestCoalescer(MeterRegistry meterRegistry,
+                            @Value("${chat.coalesce.enabled:true}") boolean enabled) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        Gauge.builder("chat.inflight", this, coalescer -> coalescer.calls.size() + coalescer.streams.size())
+            .description("Questions distinctes en cours de calcul")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Exécute {@code work}, ou attend le calcul identique déjà en cours ; ses exceptions sont
+     * relancées à toutes les requêtes rattachées
+     */
+    public Shared<String> call(String route, String query, Supplier<String> work) {
+        if (!enabled) {
+            return new Shared<>(work.get(), false);
+        }
+        String key = key(route, query);
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> existing = calls.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced(route, "call");
+            try {
+                return new Shared<>(existing.join(), true);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        try {
+            String result = work.get();
+            flight.complete(result);
+            return new Shared<>(result, false);
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    /**
+     * Variante streaming : le flux de {@code work} est partagé et rejoué depuis le début aux
+     * requêtes rattachées ; il n'est annulé que si tous ses abonnés se désabonnent.
+     * Le calcul n'est enregistré qu'à l'abonnement du Mono, et l'appelant s'abonne au flux
+     * dans la foulée : un client parti avant ne laisse pas d'entrée orpheline.
+     */
+    public Mono<Shared<Flux<String>>> stream(String route, String query, Supplier<Flux<String>> work) {
+        if (!enabled) {
+            return Mono.fromSupplier(() -> new Shared<>(Flux.defer(work), false));
+        }
+        return Mono.fromSupplier(() -> {
+            String key = key(route, query);
+            AtomicReference<Flux<String>> self = new AtomicReference<>();
+            Flux<String> flight = Flux.defer(work)
+                .doFinally(signal -> streams.remove(key, self.get()))
+                .replay()
+                .refCount();
+            self.set(flight);
+
+            Flux<String> existing = streams.putIfAbsent(key, flight);
+            if (existing != null) {
+                coalesced(route, "stream");
+                return new Shared<>(existing, true);
+            }
+            return new Shared<>(flight, false);
+        });
+    }
+
+    private void coalesced(String route, String mode) {
+        log.info("🔗 Question identique déjà en cours ({}) - résultat partagé", route);
+        Counter.builder("chat.coalesced")
+            .description("Requêtes rattachées à un calcul identique en cours (générations évitées)")
+            .tag("route", route)
+            .tag("mode", mode)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static String key(String route, String query) {
+        return route + "|" + ("CSV".equals(route) ? query : AnswerCache.normalize(query));
+    }
+
+    // follower : résultat obtenu d'un calcul lancé par une autre requête
+    public record Shared<T>(T value, boolean follower) {}
+}
@@ -0,0 +1,118 @@
+package com.rayen.miniprojet.tools;
+
+import com.rayen.miniprojet.entities.ProductChangedEvent;
+import com.rayen.miniprojet.tools.StockTools.StockInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Cache read-through borné (LRU) des StockInfo par SKU, devant ProductRepository.findBySku.
+ *
+ * Toute écriture d'un produit invalide son entrée deux fois : au flush (les lectures suivantes
+ * de la transaction rechargent) et après le commit (une lecture concurrente ne peut pas
+ * laisser en cache la valeur d'avant). Un chargement commencé avant une invalidation
+ * n'est jamais mis en cache.
+ */
+@Component
+@Slf4j
+public class StockInfoCache {
+
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+    private final Timer loadTimer;
+
+    // Ordre d'accès → LRU
+    private final LinkedHashMap<String, StockInfo> entries = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StockInfo> eldest) {
+            return size() > maxEntries;
+        }
+    };
+    // Incrémenté à chaque invalidation : un chargement plus ancien est écarté
+    private long generation;
+
+    public StockInfoCache(MeterRegistry meterRegistry,
+                          @Value("${stock.cache.max-entries:10000}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("stock.cache.requests")
+            .description("Lectures de StockInfo servies par le cache")
+            .tag("result", "hit")
+            .register(meterRegistry);
+        this.misses = Counter.builder("stock.cache.requests")
+            .description("Lectures de StockInfo servies par le cache")
+            .tag("result", "miss")
+            .register(meterRegistry);
+        this.loadTimer = Timer.builder("stock.cache.load")
+            .description("Durée de chargement d'un produit depuis la base")
+            .register(meterRegistry);
+        Gauge.builder("stock.cache.size", this, StockInfoCache::size)
+            .description("Produits en cache")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Retourne l'entrée en cache ou la charge via {@code loader} (hors verrou)
+     */
+    public StockInfo get(String sku, Function<String, StockInfo> loader) {
+        long loadGeneration;
+        synchronized (this) {
+            StockInfo cached = entries.get(sku);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+            loadGeneration = generation;
+        }
+
+        misses.increment();
+        StockInfo loaded = loadTimer.record(() -> loader.apply(sku));
+
+        synchronized (this) {
+            if (loaded != null && generation == loadGeneration) {
+                entries.put(sku, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    @EventListener
+    public void onProductFlushed(ProductChangedEvent event) {
+        invalidate(event.sku());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductCommitted(ProductChangedEvent event) {
+        invalidate(event.sku());
+    }
+
+    // sku null : tout le cache (modification en masse)
+    public synchronized void invalidate(String sku) {
+        generation++;
+        if (sku != null) {
+            entries.remove(sku);
+        } else {
+            entries.clear();
+        }
+    }
+
+    public synchronized void clear() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -2,42 +2,81 @@ package com.rayen.miniprojet.tools;
 
 import com.rayen.miniprojet.entities.Product;
 import com.rayen.miniprojet.repositories.ProductRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Description;
+import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 @Configuration
 @RequiredArgsConstructor
 public class StockTools {
 
     private final ProductRepository repo;
+    private final StockInfoCache stockInfoCache;
+    private final MeterRegistry meterRegistry;
+
+    // Nombre maximal de produits renvoyés au modèle (les plus critiques)
+    @Value("${stock.low-stock.max-results:50}")
+    private int lowStockMaxResults;
 
     @Bean
     @Description("Donne la quantité et le statut d'un produit via son code SKU")
     public Function<StockRequest, StockInfo> getProductInfo() {
-        return request -> {
-            Product p = repo.findBySku(request.sku());
-            if (p == null) {
-                return new StockInfo(request.sku(), "Inconnu", 0, "Non trouvé");
-            }
-            
-            String status = (p.getQuantity() <= p.getMinThreshold()) ? "ALERTE RUPTURE" : "STOCK OK";
-            return new StockInfo(p.getSku(), p.getName(), p.getQuantity(), status);
-        };
+        return timed("getProductInfo", request -> request.sku() == null
+                ? loadProductInfo(null)
+                : stockInfoCache.get(request.sku(), this::loadProductInfo));
+    }
+
+    private StockInfo loadProductInfo(String sku) {
+        Product p = repo.findBySku(sku);
+        if (p == null) {
+            return new StockInfo(sku, "Inconnu", 0, "Non trouvé");
+        }
+        
+        String status = (p.getQuantity() <= p.getMinThreshold()) ? "ALERTE RUPTURE" : "STOCK OK";
+        return new StockInfo(p.getSku(), p.getName(), p.getQuantity(), status);
     }
 
     @Bean
     @Description("Retourne la liste des produits qui sont en dessous de leur seuil minimum")
     public Function<Void, List<StockInfo>> getLowStockProducts() {
-        return unused -> repo.findAll().stream()
-                .filter(p -> p.getQuantity() <= p.getMinThreshold())
+        return timed("getLowStockProducts", unused -> lowStockProducts(0, lowStockMaxResults));
+    }
+
+    /**
+     * Page de produits en alerte, triés par sévérité (filtrage et tri faits en base)
+     */
+    public List<StockInfo> lowStockProducts(int page, int size) {
+        return repo.findLowStock(PageRequest.of(page, size))
                 .map(p -> new StockInfo(p.getSku(), p.getName(), p.getQuantity(), "ALERTE RUPTURE"))
-                .collect(Collectors.toList());
+                .getContent();
+    }
+
+    public long countLowStockProducts() {
+        return repo.countByLowStockTrue();
+    }
+
+    // Nombre d'appels, latence et erreurs de chaque fonction (appels du modèle et du chemin rapide)
+    private <T, R> Function<T, R> timed(String tool, Function<T, R> function) {
+        Timer timer = Timer.builder("stock.tool")
+                .description("Appels des fonctions de stock")
+                .tag("tool", tool)
+                .register(meterRegistry);
+        return input -> {
+            try {
+                return timer.record(() -> function.apply(input));
+            } catch (RuntimeException e) {
+                meterRegistry.counter("stock.tool.errors", "tool", tool, "exception", e.getClass().getSimpleName()).increment();
+                throw e;
+            }
+        };
     }
 
     // Records pour les paramètres et réponses
@@ -0,0 +1,89 @@
+package com.rayen.miniprojet.agents;
+
+import com.rayen.miniprojet.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routage de bout en bout : mots-clés (y compris formes fléchies) et catalogue
+ */
+class QueryRouterTests {
+
+    private final QueryRouter router = routerWith(List.of(
+        new Entry("IPHONE-15", "iPhone 15 Pro"),
+        new Entry("PS5-SLIM", "PlayStation 5 Slim"),
+        new Entry("CABLE-USB-1M", "Câble USB"),
+        new Entry("CABLE-USB-2M", "Câble USB")));
+
+    @Test
+    void routesInflectedStockKeywords() {
+        assertEquals("STOCK", type("Y a-t-il des ruptures cette semaine ?"));
+        assertEquals("STOCK", type("Combien coûtent les écrans ?"));
+        assertEquals("STOCK", type("Combien coûtait la souris l'an dernier ?"));
+        assertEquals("STOCK", type("Combien coûtera la livraison express ?"));
+        assertEquals("STOCK", type("Les claviers sont-ils disponibles ?"));
+        assertEquals("STOCK", type("Quels produits faut-il commander ?"));
+        assertEquals("STOCK", type("Quel est le prix du casque ?"));
+    }
+
+    @Test
+    void keepsWordBoundaries() {
+        assertEquals("DOCUMENT", type("Quelle est la procédure de retour ?"));
+        assertEquals("DOCUMENT", type("Comment affûter un couteau ?"));
+        assertEquals("DOCUMENT", type("Le fournisseur reproduit-il les pièces ?"));
+    }
+
+    @Test
+    void routesRegionQuestionsToCsv() {
+        assertEquals("CSV", type("Quelles sont les ventes de la région nord ?"));
+        assertEquals("CSV", type("Compare les régions Est et Ouest"));
+        assertEquals("DOCUMENT", type("Quel est le délai de retour ?"));
+    }
+
+    @Test
+    void resolvesCatalogProducts() {
+        assertEquals(new QueryRouter.Route("STOCK", Set.of("PS5-SLIM"), false), router.route("Stock de la PlayStation 5 Slim"));
+        assertEquals(new QueryRouter.Route("STOCK", Set.of("IPHONE-15"), false), router.route("iphone-15 en stock ?"));
+    }
+
+    @Test
+    void flagsNamesSharedBySeveralProducts() {
+        QueryRouter.Route route = router.route("Stock du câble USB ?");
+
+        assertEquals(Set.of("CABLE-USB-1M", "CABLE-USB-2M"), route.skus());
+        assertTrue(route.ambiguous());
+        assertFalse(router.route("Stock de CABLE-USB-2M ?").ambiguous());
+    }
+
+    private String type(String query) {
+        return router.route(query).type();
+    }
+
+    private static QueryRouter routerWith(List<ProductRepository.CatalogEntry> catalog) {
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findAllProjectedBy()).thenReturn(catalog);
+        QueryRouter router = new QueryRouter(repository);
+        router.rebuild();
+        return router;
+    }
+
+    private record Entry(String sku, String name) implements ProductRepository.CatalogEntry {
+        @Override
+        public String getSku() {
+            return sku;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.rayen.miniprojet.agents;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reconnaissance des motifs de routage : mots entiers uniquement, en une passe
+ */
+class RoutingAutomatonTests {
+
+    private final RoutingAutomaton automaton = new RoutingAutomaton.Builder()
+        .add("stock", RoutingAutomaton.STOCK)
+        .add("csv", RoutingAutomaton.CSV)
+        .add("est", RoutingAutomaton.DIRECTION)
+        .add("nord est", RoutingAutomaton.REGION)
+        .add("PRD-001", RoutingAutomaton.PRODUCT, "PRD-001")
+        .add("Câble réseau", RoutingAutomaton.PRODUCT, "PRD-002")
+        .build();
+
+    @Test
+    void matchesWholeWordsOnly() {
+        assertTrue(automaton.match("Quel est le stock ?").has(RoutingAutomaton.STOCK));
+        assertFalse(automaton.match("Conditions de stockage").has(RoutingAutomaton.STOCK));
+        assertFalse(automaton.match("Produit en restock").has(RoutingAutomaton.STOCK));
+        assertFalse(automaton.match("Fichiers csvx").has(RoutingAutomaton.CSV));
+    }
+
+    @Test
+    void ignoresCaseAccentsAndPunctuation() {
+        assertTrue(automaton.match("STOCK!").has(RoutingAutomaton.STOCK));
+        assertTrue(automaton.match("Région Nord-Est, svp").has(RoutingAutomaton.REGION));
+        assertEquals(Set.of("PRD-002"), automaton.match("Prix du cable   RESEAU ?").skus());
+    }
+
+    @Test
+    void reportsPatternsEndingInsideLongerOnes() {
+        RoutingAutomaton.Match match = automaton.match("ventes nord est");
+
+        assertTrue(match.has(RoutingAutomaton.REGION));
+        assertTrue(match.has(RoutingAutomaton.DIRECTION));
+        assertFalse(automaton.match("ventes nordest").has(RoutingAutomaton.DIRECTION));
+    }
+
+    @Test
+    void collectsSkusOfMatchedProducts() {
+        assertEquals(Set.of("PRD-001", "PRD-002"), automaton.match("prd 001 ou câble réseau ?").skus());
+        assertTrue(automaton.match("PRD-0012").skus().isEmpty());
+        assertTrue(automaton.match("XPRD-001").skus().isEmpty());
+    }
+
+    @Test
+    void keepsEverySkuOfASharedName() {
+        RoutingAutomaton shared = new RoutingAutomaton.Builder()
+            .add("Câble USB", RoutingAutomaton.PRODUCT, "USB-1M")
+            .add("Câble USB", RoutingAutomaton.PRODUCT, "USB-2M")
+            .add("USB-1M", RoutingAutomaton.PRODUCT, "USB-1M")
+            .build();
+
+        RoutingAutomaton.Match byName = shared.match("stock du câble usb");
+        assertEquals(Set.of("USB-1M", "USB-2M"), byName.skus());
+        assertTrue(byName.ambiguous());
+
+        RoutingAutomaton.Match bySku = shared.match("stock de usb-1m");
+        assertEquals(Set.of("USB-1M"), bySku.skus());
+        assertFalse(bySku.ambiguous());
+        assertFalse(automaton.match("câble réseau").ambiguous());
+    }
+
+    @Test
+    void matchesPrefixPatternsAtWordStartOnly() {
+        RoutingAutomaton prefixes = new RoutingAutomaton.Builder()
+            .addPrefix("rupture", RoutingAutomaton.STOCK)
+            .add("stock", RoutingAutomaton.STOCK)
+            .build();
+
+        assertTrue(prefixes.match("Ruptures de la semaine").has(RoutingAutomaton.STOCK));
+        assertTrue(prefixes.match("rupture").has(RoutingAutomaton.STOCK));
+        assertFalse(prefixes.match("interruptures").has(RoutingAutomaton.STOCK));
+        assertFalse(prefixes.match("stockage").has(RoutingAutomaton.STOCK));
+    }
+
+    @Test
+    void matchesNothingInEmptyQuery() {
+        assertEquals(0, automaton.match("").flags());
+        assertEquals(0, automaton.match("  ?! ").flags());
+    }
+}
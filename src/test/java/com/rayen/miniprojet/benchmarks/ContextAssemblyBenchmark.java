@@ -0,0 +1,78 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.rag.ContextPacker;
+import com.rayen.miniprojet.rag.CorpusSnapshot;
+import com.rayen.miniprojet.rag.HybridRetriever;
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Construction du contexte documentaire (AIAgent.getRelevantContext) :
+ * - pack : assemblage seul (fusion des chunks voisins, budget de tokens) sur un résultat fixe ;
+ * - retrieveAndPack : recherche hybride + assemblage, comme pour une vraie question DOCUMENT.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContextAssemblyBenchmark {
+
+    @Param({"1000", "10000"})
+    int chunks;
+
+    private CorpusSnapshot corpus;
+    private HybridRetriever retriever;
+    private ContextPacker packer;
+    private List<Document> retrieved;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Document> documents = SyntheticCorpus.chunks(chunks);
+        corpus = CorpusSnapshot.empty().next(documents, Map.of());
+        SimpleVectorStore vectorStore = new SimpleVectorStore(new FakeEmbeddingModel(768));
+        vectorStore.add(documents);
+
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        retriever = new HybridRetriever(vectorStore, meterRegistry, 2000, 200, 60);
+        packer = new ContextPacker(meterRegistry, 1500);
+        retrieved = retriever.retrieve(SyntheticCorpus.QUERIES.get(0), 10, corpus);
+    }
+
+    @TearDown
+    public void tearDown() {
+        retriever.shutdown();
+    }
+
+    @Benchmark
+    public String pack() {
+        return packer.pack(retrieved);
+    }
+
+    @Benchmark
+    public String retrieveAndPack() {
+        String query = SyntheticCorpus.QUERIES.get(next++ % SyntheticCorpus.QUERIES.size());
+        List<Document> ranked = retriever.retrieve(query, 10, corpus);
+        return ranked.isEmpty() ? packer.truncateToBudget(corpus.fullText()) : packer.pack(ranked);
+    }
+}
@@ -0,0 +1,63 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.services.CsvService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Profilage d'un fichier CSV de ventes (CsvService.analyzeCsvContent) selon sa taille
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvAnalysisBenchmark {
+
+    private static final String[] REGIONS = {"Nord", "Sud", "Est", "Ouest", "Centre"};
+    private static final String[] PRODUCTS = {"Clavier", "Souris", "Écran", "Casque", "Webcam", "Chargeur"};
+
+    @Param({"1000", "100000", "1000000"})
+    int rows;
+
+    private final CsvService csvService = new CsvService();
+    private MockMultipartFile file;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDate start = LocalDate.of(2024, 1, 1);
+        StringBuilder csv = new StringBuilder("date;region;produit;quantite;prix_unitaire;client\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(start.plusDays(random.nextInt(365))).append(';')
+               .append(REGIONS[random.nextInt(REGIONS.length)]).append(';')
+               .append(PRODUCTS[random.nextInt(PRODUCTS.length)]).append(';')
+               .append(1 + random.nextInt(50)).append(';')
+               .append(String.format(Locale.ROOT, "%.2f", 5 + random.nextDouble() * 300)).append(';')
+               .append("CLI-").append(random.nextInt(5000)).append('\n');
+        }
+        file = new MockMultipartFile("file", "ventes.csv", "text/csv", csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String analyzeCsvContent() {
+        return csvService.analyzeCsvContent(file);
+    }
+}
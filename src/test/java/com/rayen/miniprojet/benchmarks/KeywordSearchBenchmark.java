@@ -0,0 +1,48 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.rag.CorpusSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche BM25 sur l'index mots-clés d'un instantané de corpus (jambe "keyword" de la recherche hybride)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeywordSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int chunks;
+
+    private CorpusSnapshot corpus;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        corpus = CorpusSnapshot.empty().next(SyntheticCorpus.chunks(chunks), Map.of());
+    }
+
+    @Benchmark
+    public List<Document> keywordSearch() {
+        String query = SyntheticCorpus.QUERIES.get(next++ % SyntheticCorpus.QUERIES.size());
+        return corpus.keywordSearch(query, 10);
+    }
+}
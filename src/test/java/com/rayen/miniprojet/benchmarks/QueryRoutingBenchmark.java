@@ -0,0 +1,92 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.agents.QueryRouter;
+import com.rayen.miniprojet.repositories.ProductRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Routage d'une question (ex-AIAgent.detectQueryType) avec un catalogue de taille variable
+ * compilé dans l'automate du QueryRouter
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryRoutingBenchmark {
+
+    private static final String[] NAME_WORDS = {
+        "Clavier", "Souris", "Écran", "Câble", "Casque", "Chargeur", "Batterie", "Imprimante",
+        "Routeur", "Disque", "Adaptateur", "Support", "Lampe", "Tablette", "Enceinte", "Webcam"};
+
+    @Param({"100", "10000", "50000"})
+    int products;
+
+    private QueryRouter router;
+    private List<String> queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        List<ProductRepository.CatalogEntry> catalog = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = NAME_WORDS[random.nextInt(NAME_WORDS.length)] + " modèle " + i;
+            catalog.add(new Entry(String.format("SKU-%06d", i), name));
+        }
+        ProductRepository repository = mock(ProductRepository.class);
+        when(repository.findAllProjectedBy()).thenReturn(catalog);
+        router = new QueryRouter(repository);
+        router.rebuild();
+
+        queries = List.of(
+            "Quel est le stock actuel de " + catalog.get(products / 2).getSku() + " ?",
+            "Combien coûte le " + catalog.get(products - 1).getName() + " ?",
+            "Contexte : l'utilisateur a uploadé un fichier CSV. Quelle région a le plus vendu ?",
+            "Quelles sont les ventes de la région nord par rapport au sud ?",
+            "Quelle est la procédure de retour d'un article défectueux ?",
+            "Explique la politique de garantie décrite dans le document");
+    }
+
+    @TearDown
+    public void tearDown() {
+        router.shutdown();
+    }
+
+    @Benchmark
+    public QueryRouter.Route route() {
+        return router.route(queries.get(next++ % queries.size()));
+    }
+
+    private record Entry(String sku, String name) implements ProductRepository.CatalogEntry {
+        @Override
+        public String getSku() {
+            return sku;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.rag.IngestionPipeline;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Corpus synthétique reproductible (graine fixe) : chunks de ~800 caractères tirés d'un
+ * vocabulaire proche des documents réels, avec les métadonnées posées par l'ingestion.
+ */
+final class SyntheticCorpus {
+
+    static final List<String> QUERIES = List.of(
+        "Quelle est la procédure de réapprovisionnement du stock ?",
+        "Comment fonctionne la garantie des produits électroniques ?",
+        "Délai de livraison pour une commande urgente",
+        "Quelles sont les conditions de retour d'un article défectueux ?",
+        "Politique de sécurité de l'entrepôt et contrôle qualité");
+
+    private static final String[] VOCABULARY = (
+        "stock produit commande livraison entrepôt fournisseur inventaire garantie retour "
+        + "procédure qualité contrôle sécurité client facture délai urgence transport palette "
+        + "référence catalogue prix remise seuil alerte rupture réapprovisionnement quantité "
+        + "article électronique défectueux réparation maintenance emballage étiquette conformité "
+        + "audit responsable équipe planning rotation stockage zone réception expédition suivi "
+        + "traçabilité lot numéro série document politique règle condition contrat service "
+        + "le la les un une des du de et en pour par avec dans sur est sont doit peuvent").split(" ");
+
+    private static final int CHUNK_CHARS = 800;
+    private static final int CHUNKS_PER_SOURCE = 200;
+
+    private SyntheticCorpus() {
+    }
+
+    static List<Document> chunks(int count) {
+        Random random = new Random(42);
+        List<Document> chunks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Map<String, Object> metadata = new HashMap<>();
+            metadata.put(IngestionPipeline.METADATA_SOURCE, "synthetique-" + (i / CHUNKS_PER_SOURCE) + ".pdf");
+            metadata.put(IngestionPipeline.METADATA_CHUNK_INDEX, i % CHUNKS_PER_SOURCE);
+            metadata.put(IngestionPipeline.METADATA_PAGE, 1 + (i % CHUNKS_PER_SOURCE) / 3);
+            chunks.add(new Document("chunk-" + i, text(random, CHUNK_CHARS), metadata));
+        }
+        return chunks;
+    }
+
+    static String text(Random random, int chars) {
+        StringBuilder text = new StringBuilder(chars + 20);
+        int wordsInSentence = 0;
+        while (text.length() < chars) {
+            String word = VOCABULARY[random.nextInt(VOCABULARY.length)];
+            text.append(wordsInSentence == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            if (++wordsInSentence >= 8 + random.nextInt(10)) {
+                text.append(". ");
+                wordsInSentence = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+}
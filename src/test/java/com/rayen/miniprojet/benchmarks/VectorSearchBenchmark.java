@@ -0,0 +1,70 @@
+package com.rayen.miniprojet.benchmarks;
+
+import com.rayen.miniprojet.rag.FlatVectorStore;
+import com.rayen.miniprojet.rag.HnswVectorStore;
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.SimpleVectorStore;
+import org.springframework.ai.vectorstore.VectorStore;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche de similarité dans le VectorStore (jambe "vector"), embeddings fournis par
+ * le FakeEmbeddingModel : mesure le parcours du store, pas le modèle.
+ * simple = SimpleVectorStore de Spring AI, flat / flat-int8 = FlatVectorStore,
+ * hnsw = HnswVectorStore (m=16, efConstruction=200, efSearch=64 ; construction non mesurée)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class VectorSearchBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int chunks;
+
+    @Param({"simple", "flat", "flat-int8", "hnsw"})
+    String store;
+
+    // Dimension de nomic-embed-text
+    @Param({"768"})
+    int dimensions;
+
+    private VectorStore vectorStore;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        FakeEmbeddingModel embeddingModel = new FakeEmbeddingModel(dimensions);
+        vectorStore = switch (store) {
+            case "simple" -> new SimpleVectorStore(embeddingModel);
+            case "flat" -> new FlatVectorStore(embeddingModel, FlatVectorStore.Quantization.NONE);
+            case "flat-int8" -> new FlatVectorStore(embeddingModel, FlatVectorStore.Quantization.INT8);
+            case "hnsw" -> new HnswVectorStore(embeddingModel, 16, 200, 64);
+            default -> throw new IllegalArgumentException(store);
+        };
+        vectorStore.add(SyntheticCorpus.chunks(chunks));
+    }
+
+    @Benchmark
+    public List<Document> similaritySearch() {
+        String query = SyntheticCorpus.QUERIES.get(next++ % SyntheticCorpus.QUERIES.size());
+        return vectorStore.similaritySearch(SearchRequest.query(query).withTopK(10).withSimilarityThreshold(0.2));
+    }
+}
@@ -0,0 +1,286 @@
+package com.rayen.miniprojet.loadtest;
+
+import com.rayen.miniprojet.MiniProjetMlApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test de charge de bout en bout : démarre l'application avec les modèles simulés
+ * (profil loadtest), puis envoie un mélange de requêtes /chat, /chat/csv et /test-rag
+ * à concurrence croissante. Pour chaque palier : débit, p50/p95/p99 et taux d'erreurs
+ * par scénario, afin de repérer où le serveur sature indépendamment du modèle.
+ *
+ * Paramètres (propriétés système) :
+ * - loadtest.base-url : cible une instance déjà démarrée au lieu d'en lancer une
+ * - loadtest.concurrency : paliers de concurrence (défaut 1,4,16,64)
+ * - loadtest.step-seconds : durée de chaque palier (défaut 30)
+ * - loadtest.warmup-seconds : préchauffage avant le premier palier (défaut 10)
+ *
+ * L'ingestion du corpus tournant en arrière-plan, les paliers ne commencent qu'une fois
+ * l'index vectoriel prêt (régime établi, recherche hybride).
+ *
+ * Lancement : mvn -Ploadtest verify (résultats aussi dans target/loadtest-report.csv)
+ */
+public final class LoadTestHarness {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofMinutes(5);
+
+    private static final List<String> STOCK_QUESTIONS = List.of(
+        "Quel est le stock actuel de PS5-SLIM ?",
+        "Quel est le stock de IPHONE-15 ?",
+        "Quels produits sont en rupture de stock ?",
+        "Combien coûte le HEADSET-G9 et est-il disponible ?",
+        "Pourquoi le PC-DELL est-il en rupture ?");
+    private static final List<String> DOCUMENT_QUESTIONS = List.of(
+        "Quelle est la politique de retour ?",
+        "Quelles sont les règles de sécurité de l'entrepôt ?",
+        "Comment est organisée la logistique externe ?",
+        "Quels sont les délais de livraison des transporteurs ?");
+    private static final List<String> CSV_QUESTIONS = List.of(
+        "Quelle région a le plus vendu ?",
+        "Quel produit génère le plus de chiffre d'affaires ?",
+        "Compare les ventes du nord et du sud");
+
+    private final HttpClient client = HttpClient.newBuilder()
+        .connectTimeout(Duration.ofSeconds(10))
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    private final String baseUrl;
+    private final List<Scenario> scenarios;
+
+    private LoadTestHarness(String baseUrl) {
+        this.baseUrl = baseUrl;
+        byte[] csv = salesCsv(2_000);
+        // Poids ≈ trafic attendu : surtout du chat, un peu de CSV et de diagnostic RAG
+        this.scenarios = List.of(
+            new Scenario("chat-stock", 4, random -> get("/chat", pick(STOCK_QUESTIONS, random))),
+            new Scenario("chat-document", 3, random -> get("/chat", pick(DOCUMENT_QUESTIONS, random) + variant(random))),
+            new Scenario("chat-csv", 2, random -> multipart("/chat/csv", csv, pick(CSV_QUESTIONS, random))),
+            new Scenario("test-rag", 1, random -> get("/test-rag", pick(DOCUMENT_QUESTIONS, random))));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = System.getProperty("loadtest.base-url", "");
+        int[] levels = Arrays.stream(System.getProperty("loadtest.concurrency", "1,4,16,64").split(","))
+            .map(String::trim).mapToInt(Integer::parseInt).toArray();
+        long stepSeconds = Long.getLong("loadtest.step-seconds", 30);
+        long warmupSeconds = Long.getLong("loadtest.warmup-seconds", 10);
+
+        ConfigurableApplicationContext application = null;
+        if (baseUrl.isBlank()) {
+            application = new SpringApplicationBuilder(MiniProjetMlApplication.class, StubModelsConfiguration.class)
+                .profiles("loadtest")
+                .properties("server.port=0")
+                .run(args);
+            baseUrl = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            LoadTestHarness harness = new LoadTestHarness(baseUrl);
+            System.out.printf("🚀 Cible %s - paliers %s, %d s chacun%n", baseUrl, Arrays.toString(levels), stepSeconds);
+            harness.awaitVectorIndex(Duration.ofMinutes(10));
+            harness.run(levels[0], warmupSeconds);
+
+            List<String> report = new ArrayList<>();
+            report.add("concurrency,scenario,requests,throughput_per_s,p50_ms,p95_ms,p99_ms,error_rate,rejected_rate");
+            for (int level : levels) {
+                List<Sample> samples = harness.run(level, stepSeconds);
+                report.addAll(harness.print(level, samples, stepSeconds));
+            }
+            Path output = Path.of("target", "loadtest-report.csv");
+            Files.createDirectories(output.getParent());
+            Files.write(output, report);
+            System.out.println("📄 Rapport : " + output.toAbsolutePath());
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    /**
+     * Attend la fin de l'ingestion (composant "corpus" de /actuator/health en phase HYBRID ou FAILED) ;
+     * sans les détails (cible distante), seulement que le corpus réponde (UP) ou ait échoué (DOWN)
+     */
+    private void awaitVectorIndex(Duration timeout) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/actuator/health/corpus"))
+            .timeout(REQUEST_TIMEOUT)
+            .GET()
+            .build();
+        while (System.nanoTime() - start < timeout.toNanos()) {
+            String body = client.send(request, HttpResponse.BodyHandlers.ofString()).body();
+            boolean detailed = body.contains("\"phase\"");
+            if (body.contains("\"HYBRID\"") || body.contains("\"FAILED\"")
+                    || (!detailed && (body.contains("\"UP\"") || body.contains("\"DOWN\"")))) {
+                System.out.printf("📚 Corpus prêt après %d ms d'attente : %s%n",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), body);
+                return;
+            }
+            Thread.sleep(500);
+        }
+        System.out.println("⚠️ Index vectoriel toujours en construction, mesure en mode mots-clés");
+    }
+
+    /**
+     * Palier : {@code concurrency} utilisateurs enchaînent des requêtes sans pause pendant {@code seconds}
+     */
+    private List<Sample> run(int concurrency, long seconds) throws InterruptedException {
+        ConcurrentLinkedQueue<Sample> samples = new ConcurrentLinkedQueue<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        int totalWeight = scenarios.stream().mapToInt(Scenario::weight).sum();
+
+        try (ExecutorService users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < concurrency; u++) {
+                users.submit(() -> {
+                    Random random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        Scenario scenario = pickWeighted(random, totalWeight);
+                        samples.add(execute(scenario, scenario.request().build(random)));
+                    }
+                });
+            }
+        }
+        return new ArrayList<>(samples);
+    }
+
+    private Sample execute(Scenario scenario, HttpRequest request) {
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return new Sample(scenario.name(), System.nanoTime() - start, response.statusCode());
+        } catch (IOException e) {
+            return new Sample(scenario.name(), System.nanoTime() - start, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Sample(scenario.name(), System.nanoTime() - start, -1);
+        }
+    }
+
+    private List<String> print(int concurrency, List<Sample> samples, long seconds) {
+        Map<String, List<Sample>> byScenario = new TreeMap<>();
+        for (Sample sample : samples) {
+            byScenario.computeIfAbsent(sample.scenario(), s -> new ArrayList<>()).add(sample);
+        }
+        byScenario.put("TOTAL", samples);
+
+        System.out.printf("%n=== Concurrence %d ===%n", concurrency);
+        System.out.printf("%-14s %9s %9s %9s %9s %9s %8s %8s%n",
+            "scénario", "requêtes", "req/s", "p50 ms", "p95 ms", "p99 ms", "erreurs", "429");
+        List<String> rows = new ArrayList<>();
+        byScenario.forEach((scenario, group) -> {
+            long[] latencies = group.stream().mapToLong(Sample::nanos).sorted().toArray();
+            long errors = group.stream().filter(s -> s.status() < 200 || (s.status() >= 300 && s.status() != 429)).count();
+            long rejected = group.stream().filter(s -> s.status() == 429).count();
+            double throughput = group.size() / (double) seconds;
+            double errorRate = group.isEmpty() ? 0 : errors / (double) group.size();
+            double rejectedRate = group.isEmpty() ? 0 : rejected / (double) group.size();
+            System.out.printf("%-14s %9d %9.1f %9.0f %9.0f %9.0f %7.1f%% %7.1f%%%n",
+                scenario, group.size(), throughput,
+                millis(latencies, 0.50), millis(latencies, 0.95), millis(latencies, 0.99),
+                errorRate * 100, rejectedRate * 100);
+            rows.add(String.format(Locale.ROOT, "%d,%s,%d,%.2f,%.1f,%.1f,%.1f,%.4f,%.4f",
+                concurrency, scenario, group.size(), throughput,
+                millis(latencies, 0.50), millis(latencies, 0.95), millis(latencies, 0.99),
+                errorRate, rejectedRate));
+        });
+        return rows;
+    }
+
+    // Percentile par rang le plus proche
+    private static double millis(long[] sortedNanos, double percentile) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    private Scenario pickWeighted(Random random, int totalWeight) {
+        int target = random.nextInt(totalWeight);
+        for (Scenario scenario : scenarios) {
+            target -= scenario.weight();
+            if (target < 0) {
+                return scenario;
+            }
+        }
+        return scenarios.get(scenarios.size() - 1);
+    }
+
+    private HttpRequest get(String path, String query) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path + "?query=" + URLEncoder.encode(query, StandardCharsets.UTF_8)))
+            .timeout(REQUEST_TIMEOUT)
+            .GET()
+            .build();
+    }
+
+    private HttpRequest multipart(String path, byte[] csv, String query) {
+        String boundary = "----loadtest" + Long.toHexString(System.nanoTime());
+        byte[] head = ("--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"query\"\r\n\r\n" + query + "\r\n"
+            + "--" + boundary + "\r\n"
+            + "Content-Disposition: form-data; name=\"file\"; filename=\"ventes.csv\"\r\n"
+            + "Content-Type: text/csv\r\n\r\n").getBytes(StandardCharsets.UTF_8);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.UTF_8);
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(REQUEST_TIMEOUT)
+            .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+            .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, csv, tail)))
+            .build();
+    }
+
+    // Suffixe variable : une même question n'est pas servie par un cache en amont
+    private static String variant(Random random) {
+        return " (réf. " + random.nextInt(1_000_000) + ")";
+    }
+
+    private static String pick(List<String> values, Random random) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private static byte[] salesCsv(int rows) {
+        String[] regions = {"Nord", "Sud", "Est", "Ouest"};
+        String[] products = {"iPhone 15 Pro", "PlayStation 5", "Dell XPS 13", "Casque Gaming G9"};
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("date,region,produit,quantite,prix_unitaire\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append(String.format(Locale.ROOT, "2024-%02d-%02d,%s,%s,%d,%.2f\n",
+                1 + random.nextInt(12), 1 + random.nextInt(28),
+                regions[random.nextInt(regions.length)], products[random.nextInt(products.length)],
+                1 + random.nextInt(20), 50 + random.nextDouble() * 1500));
+        }
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface RequestFactory {
+        HttpRequest build(Random random);
+    }
+
+    private record Scenario(String name, int weight, RequestFactory request) {}
+
+    private record Sample(String scenario, long nanos, int status) {}
+}
@@ -0,0 +1,160 @@
+package com.rayen.miniprojet.loadtest;
+
+import com.rayen.miniprojet.tools.StockTools.StockInfo;
+import com.rayen.miniprojet.tools.StockTools.StockRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.MessageType;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.context.ApplicationContext;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ChatModel local qui imite le comportement temporel d'Ollama :
+ * - temps jusqu'au premier token (prefill) proportionnel à la taille du prompt ;
+ * - génération à débit fixe (tokens/s) ;
+ * - appel d'outil quand la question cite un SKU ou parle de rupture : la vraie fonction
+ *   (getProductInfo / getLowStockProducts) est exécutée, puis un second tour de modèle est simulé.
+ */
+@Slf4j
+public class StubChatModel implements ChatModel {
+
+    private static final Pattern SKU = Pattern.compile("\\b[A-Z0-9]+(?:-[A-Z0-9]+)+\\b");
+
+    private final ApplicationContext context;
+    private final StubModelsProperties properties;
+
+    public StubChatModel(ApplicationContext context, StubModelsProperties properties) {
+        this.context = context;
+        this.properties = properties;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        long promptTokens = estimateTokens(prompt);
+        String toolResult = callTools(prompt);
+        sleep(prefillMillis(promptTokens, toolResult));
+        String answer = answer(toolResult);
+        sleep(properties.answerTokens() * 1000L / properties.tokensPerSecond());
+        return response(answer, promptTokens, properties.answerTokens());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        long promptTokens = estimateTokens(prompt);
+        return Mono.fromCallable(() -> callTools(prompt))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(toolResult -> {
+                String[] words = answer(toolResult).split(" ");
+                Duration perToken = Duration.ofNanos(1_000_000_000L / properties.tokensPerSecond());
+                return Mono.delay(Duration.ofMillis(prefillMillis(promptTokens, toolResult)))
+                    .thenMany(Flux.interval(perToken).take(words.length))
+                    .map(i -> {
+                        String token = (i == 0 ? "" : " ") + words[i.intValue()];
+                        // Comme Ollama, l'usage n'est rapporté que sur le dernier morceau
+                        return i == words.length - 1
+                            ? response(token, promptTokens, words.length)
+                            : response(token, 0, 0);
+                    });
+            });
+    }
+
+    // Un appel d'outil coûte un aller-retour complet de plus avec le modèle
+    private long prefillMillis(long promptTokens, String toolResult) {
+        long prefill = properties.firstTokenMillis() + promptTokens / properties.prefillTokensPerMilli();
+        return toolResult == null ? prefill : prefill * 2;
+    }
+
+    @SuppressWarnings("unchecked")
+    private String callTools(Prompt prompt) {
+        if (!properties.toolCalls()) {
+            return null;
+        }
+        String question = lastUserMessage(prompt);
+        Matcher matcher = SKU.matcher(question);
+        if (matcher.find()) {
+            Function<StockRequest, StockInfo> getProductInfo = context.getBean("getProductInfo", Function.class);
+            return getProductInfo.apply(new StockRequest(matcher.group())).toString();
+        }
+        String lower = question.toLowerCase(Locale.ROOT);
+        if (lower.contains("rupture") || lower.contains("alerte")) {
+            Function<Void, List<StockInfo>> getLowStockProducts = context.getBean("getLowStockProducts", Function.class);
+            return getLowStockProducts.apply(null).toString();
+        }
+        return null;
+    }
+
+    private String answer(String toolResult) {
+        StringBuilder answer = new StringBuilder("Réponse simulée.");
+        if (toolResult != null) {
+            answer.append(" Données outil : ").append(toolResult).append('.');
+        }
+        int words = answer.toString().split(" ").length;
+        for (int i = words; i < properties.answerTokens(); i++) {
+            answer.append(" mot").append(i);
+        }
+        return answer.toString();
+    }
+
+    private static String lastUserMessage(Prompt prompt) {
+        List<Message> messages = prompt.getInstructions();
+        for (int i = messages.size() - 1; i >= 0; i--) {
+            if (messages.get(i).getMessageType() == MessageType.USER) {
+                return messages.get(i).getContent();
+            }
+        }
+        return "";
+    }
+
+    // ~4 caractères par token : suffisant pour simuler un prefill proportionnel au prompt
+    private static long estimateTokens(Prompt prompt) {
+        long chars = 0;
+        for (Message message : prompt.getInstructions()) {
+            chars += message.getContent() == null ? 0 : message.getContent().length();
+        }
+        return chars / 4;
+    }
+
+    private static ChatResponse response(String text, long promptTokens, long generationTokens) {
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+            .withUsage(new StubUsage(promptTokens, generationTokens))
+            .build();
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))), metadata);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Génération simulée interrompue", e);
+        }
+    }
+
+    private record StubUsage(long promptTokens, long generationTokens) implements Usage {
+        @Override
+        public Long getPromptTokens() {
+            return promptTokens;
+        }
+
+        @Override
+        public Long getGenerationTokens() {
+            return generationTokens;
+        }
+    }
+}
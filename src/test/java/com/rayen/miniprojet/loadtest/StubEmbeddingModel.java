@@ -0,0 +1,41 @@
+package com.rayen.miniprojet.loadtest;
+
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embeddings déterministes des benchmarks, avec la latence d'un appel réseau à Ollama
+ * (une fois par appel, qu'il porte un texte ou un lot)
+ */
+public class StubEmbeddingModel extends FakeEmbeddingModel {
+
+    private final long latencyMillis;
+
+    public StubEmbeddingModel(StubModelsProperties properties) {
+        super(properties.embeddingDimensions());
+        this.latencyMillis = properties.embeddingMillis();
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        pause();
+        return super.call(request);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        pause();
+        return super.embed(document);
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(latencyMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Embedding simulé interrompu", e);
+        }
+    }
+}
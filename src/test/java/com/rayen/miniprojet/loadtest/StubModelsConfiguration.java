@@ -0,0 +1,40 @@
+package com.rayen.miniprojet.loadtest;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Remplace les modèles Ollama par les modèles simulés (l'auto-configuration Ollama est
+ * exclue par le profil loadtest). Jamais détectée par le scan : ajoutée explicitement
+ * par le LoadTestHarness.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class StubModelsConfiguration {
+
+    @Bean
+    StubModelsProperties stubModelsProperties(
+            @Value("${loadtest.stub.chat.first-token-ms:300}") long firstTokenMillis,
+            @Value("${loadtest.stub.chat.prefill-tokens-per-ms:2}") long prefillTokensPerMilli,
+            @Value("${loadtest.stub.chat.tokens-per-second:40}") int tokensPerSecond,
+            @Value("${loadtest.stub.chat.answer-tokens:120}") int answerTokens,
+            @Value("${loadtest.stub.chat.tool-calls:true}") boolean toolCalls,
+            @Value("${loadtest.stub.embedding.latency-ms:15}") long embeddingMillis,
+            @Value("${loadtest.stub.embedding.dimensions:768}") int embeddingDimensions) {
+        return new StubModelsProperties(firstTokenMillis, prefillTokensPerMilli, tokensPerSecond,
+            answerTokens, toolCalls, embeddingMillis, embeddingDimensions);
+    }
+
+    @Bean
+    ChatModel stubChatModel(ApplicationContext context, StubModelsProperties properties) {
+        return new StubChatModel(context, properties);
+    }
+
+    @Bean
+    EmbeddingModel stubEmbeddingModel(StubModelsProperties properties) {
+        return new StubEmbeddingModel(properties);
+    }
+}
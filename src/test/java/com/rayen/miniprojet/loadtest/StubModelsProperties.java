@@ -0,0 +1,21 @@
+package com.rayen.miniprojet.loadtest;
+
+/**
+ * Comportement des modèles simulés (propriétés loadtest.stub.*, voir application-loadtest.properties)
+ *
+ * @param firstTokenMillis      latence fixe avant le premier token
+ * @param prefillTokensPerMilli vitesse de lecture du prompt (tokens de prompt par ms de prefill)
+ * @param tokensPerSecond       débit de génération
+ * @param answerTokens          longueur des réponses générées
+ * @param toolCalls             exécuter les fonctions de stock quand la question s'y prête
+ * @param embeddingMillis       latence d'un appel d'embedding
+ * @param embeddingDimensions   dimension des vecteurs
+ */
+public record StubModelsProperties(long firstTokenMillis,
+                                   long prefillTokensPerMilli,
+                                   int tokensPerSecond,
+                                   int answerTokens,
+                                   boolean toolCalls,
+                                   long embeddingMillis,
+                                   int embeddingDimensions) {
+}
@@ -0,0 +1,94 @@
+package com.rayen.miniprojet.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Publication des instantanés de corpus : génération, remplacement d'un document et isolation des lecteurs
+ */
+class CorpusRegistryTests {
+
+    private final CorpusRegistry registry = new CorpusRegistry();
+
+    @Test
+    void startsEmptyAndNumbersEachPublication() {
+        assertEquals(0, registry.current().generation());
+        assertTrue(registry.current().chunks().isEmpty());
+
+        CorpusSnapshot first = registry.publish(List.of(chunk("a1", "a.txt", "retour produit")),
+            Map.of("a.txt", "retour produit"), false);
+        CorpusSnapshot second = registry.publish(first.chunks(), first.sourceTexts(), true);
+
+        assertEquals(1, first.generation());
+        assertEquals(2, second.generation());
+        assertSame(second, registry.current());
+        assertFalse(first.vectorIndexReady());
+        assertTrue(second.vectorIndexReady());
+    }
+
+    @Test
+    void keepsReadersOnTheSnapshotTheyStartedWith() {
+        registry.publish(List.of(chunk("a1", "a.txt", "retour produit"), chunk("b1", "b.txt", "facture paiement")),
+            Map.of("a.txt", "retour produit", "b.txt", "facture paiement"), true);
+        CorpusSnapshot reader = registry.current();
+
+        CorpusSnapshot previous = registry.replaceSource("a.txt", List.of(chunk("a2", "a.txt", "garantie colis")),
+            "garantie colis");
+
+        assertSame(reader, previous);
+        assertEquals(List.of("a1"), ids(reader.keywordSearch("retour", 10)));
+        assertTrue(reader.keywordSearch("garantie", 10).isEmpty());
+        assertEquals("retour produitfacture paiement", reader.fullText());
+
+        CorpusSnapshot current = registry.current();
+        assertEquals(reader.generation() + 1, current.generation());
+        assertTrue(current.keywordSearch("retour", 10).isEmpty());
+        assertEquals(List.of("a2"), ids(current.keywordSearch("garantie", 10)));
+        assertEquals(List.of("b1"), ids(current.chunksOf("b.txt")));
+        assertEquals("garantie colisfacture paiement", current.fullText());
+        assertTrue(current.vectorIndexReady());
+    }
+
+    @Test
+    void removesADeletedSource() {
+        registry.publish(List.of(chunk("a1", "a.txt", "retour produit"), chunk("b1", "b.txt", "facture paiement")),
+            Map.of("a.txt", "retour produit", "b.txt", "facture paiement"), true);
+
+        registry.replaceSource("a.txt", null, null);
+        CorpusSnapshot current = registry.current();
+
+        assertEquals(List.of("b1"), ids(current.chunks()));
+        assertEquals(Map.of("b.txt", "facture paiement"), current.sourceTexts());
+        assertTrue(current.keywordSearch("retour", 10).isEmpty());
+    }
+
+    @Test
+    void storesImmutableChunksWithoutEmbeddings() {
+        Document embedded = chunk("a1", "a.txt", "retour produit");
+        embedded.setEmbedding(new float[] {1f, 0f, 0f});
+
+        CorpusSnapshot snapshot = registry.publish(List.of(embedded), Map.of("a.txt", "retour produit"), true);
+
+        Document stored = snapshot.chunks().get(0);
+        assertEquals("a1", stored.getId());
+        assertEquals(0, stored.getEmbedding() == null ? 0 : stored.getEmbedding().length);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.chunks().add(embedded));
+    }
+
+    private static Document chunk(String id, String source, String content) {
+        return new Document(id, content, Map.of(IngestionPipeline.METADATA_SOURCE, source));
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
@@ -0,0 +1,175 @@
+package com.rayen.miniprojet.rag;
+
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Top-k du FlatVectorStore (float et int8) comparé à une recherche exacte en double précision
+ */
+class FlatVectorStoreTests {
+
+    private static final int DIMENSIONS = 64;
+    private static final int DOCUMENTS = 2000;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+
+    private final Random random = new Random(42);
+    private final List<float[]> vectors = new ArrayList<>();
+
+    @Test
+    void floatTopKMatchesExactSearch() {
+        FlatVectorStore store = filledStore(FlatVectorStore.Quantization.NONE);
+
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector();
+            assertEquals(exactTopK(query, TOP_K), ids(store.similaritySearch(query, TOP_K, -1)));
+        }
+    }
+
+    @Test
+    void int8TopKMatchesExactSearchAfterRescoring() {
+        FlatVectorStore store = filledStore(FlatVectorStore.Quantization.INT8);
+
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector();
+            Set<String> expected = new HashSet<>(exactTopK(query, TOP_K));
+            List<String> actual = ids(store.similaritySearch(query, TOP_K, -1));
+            assertEquals(TOP_K, actual.size());
+            found += (int) actual.stream().filter(expected::contains).count();
+        }
+        double recall = (double) found / (QUERIES * TOP_K);
+        assertTrue(recall >= 0.98, "rappel int8 " + recall);
+    }
+
+    @Test
+    void appliesThresholdAndOrdersBySimilarity() {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(3), FlatVectorStore.Quantization.NONE);
+        store.add(List.of(
+            document("proche", new float[] {1f, 0.1f, 0f}),
+            document("identique", new float[] {2f, 0f, 0f}),
+            document("oppose", new float[] {-1f, 0f, 0f})));
+
+        assertEquals(List.of("identique", "proche"), ids(store.similaritySearch(new float[] {1f, 0f, 0f}, 5, 0.5)));
+        assertTrue(store.similaritySearch(new float[] {0f, 0f, 0f}, 5, 0).isEmpty());
+    }
+
+    @Test
+    void replacesAndDeletesById() {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(3), FlatVectorStore.Quantization.INT8);
+        store.add(List.of(document("a", new float[] {1f, 0f, 0f}), document("b", new float[] {0f, 1f, 0f}),
+            document("c", new float[] {0f, 0f, 1f})));
+        store.add(List.of(document("a", new float[] {0f, 0f, -1f})));
+
+        assertEquals(3, store.size());
+        assertEquals(List.of("a"), ids(store.similaritySearch(new float[] {0f, 0f, -1f}, 1, 0.9)));
+
+        assertTrue(store.delete(List.of("a", "inconnu")).orElseThrow());
+        assertFalse(store.delete(List.of("a")).orElseThrow());
+        assertEquals(2, store.size());
+        assertEquals(List.of("c", "b"), ids(store.similaritySearch(new float[] {0f, 0.1f, 1f}, 5, 0)));
+    }
+
+    @Test
+    void updatesMetadataWithoutTouchingVectors() {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(3), FlatVectorStore.Quantization.INT8);
+        store.add(List.of(document("a", new float[] {1f, 0f, 0f}), document("b", new float[] {0f, 1f, 0f})));
+
+        int updated = store.updateMetadata(List.of(new Document("a", "a", Map.of("chunk_index", 7)),
+            new Document("inconnu", "inconnu", Map.of())));
+
+        assertEquals(1, updated);
+        Document result = store.similaritySearch(new float[] {1f, 0f, 0f}, 1, 0.9).get(0);
+        assertEquals("a", result.getId());
+        assertEquals(Map.of("chunk_index", 7), result.getMetadata());
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    void rejectsWholeBatchOnDimensionMismatch() {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(3), FlatVectorStore.Quantization.NONE);
+        store.add(List.of(document("a", new float[] {1f, 0f, 0f})));
+
+        assertThrows(IllegalArgumentException.class, () -> store.add(List.of(
+            document("b", new float[] {0f, 1f, 0f}),
+            document("c", new float[] {0f, 1f}))));
+
+        assertEquals(1, store.size());
+        assertEquals(List.of("a"), ids(store.similaritySearch(new float[] {0f, 1f, 0f}, 5, -1)));
+    }
+
+    @Test
+    void returnsDocumentsWithoutEmbeddings() {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(3), FlatVectorStore.Quantization.INT8);
+        store.add(List.of(document("a", new float[] {1f, 0f, 0f})));
+
+        Document result = store.similaritySearch(new float[] {1f, 0f, 0f}, 1, 0).get(0);
+        assertEquals(0, result.getEmbedding() == null ? 0 : result.getEmbedding().length);
+        assertEquals(3L * 3 + 4, store.memoryBytes());
+        assertEquals(3L + 4, store.scanBytes());
+    }
+
+    private FlatVectorStore filledStore(FlatVectorStore.Quantization quantization) {
+        FlatVectorStore store = new FlatVectorStore(new FakeEmbeddingModel(DIMENSIONS), quantization);
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < DOCUMENTS; i++) {
+            float[] vector = randomVector();
+            vectors.add(vector);
+            documents.add(document("doc-" + i, vector.clone()));
+        }
+        store.add(documents);
+        return store;
+    }
+
+    private List<String> exactTopK(float[] query, int k) {
+        return IntStream.range(0, vectors.size())
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> cosine(query, vectors.get(i))).reversed())
+            .limit(k)
+            .map(i -> "doc-" + i)
+            .toList();
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static Document document(String id, float[] embedding) {
+        Document document = new Document(id, id, Map.of());
+        document.setEmbedding(embedding);
+        return document;
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
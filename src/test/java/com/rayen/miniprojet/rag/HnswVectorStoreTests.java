@@ -0,0 +1,223 @@
+package com.rayen.miniprojet.rag;
+
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rappel du graphe HNSW contre la recherche exacte, insertions concurrentes et compactage
+ */
+class HnswVectorStoreTests {
+
+    private static final int DIMENSIONS = 32;
+    private static final int DOCUMENTS = 2000;
+    private static final int QUERIES = 50;
+    private static final int TOP_K = 10;
+
+    private final Random random = new Random(42);
+    private final List<float[]> vectors = new ArrayList<>();
+
+    @Test
+    void recallAgainstExactSearch() {
+        HnswVectorStore store = newStore();
+        store.add(documents(0, DOCUMENTS));
+
+        assertTrue(recall(store, Set.of()) >= 0.95, "rappel@10 " + recall(store, Set.of()));
+        assertTrue(store.recall(QUERIES, TOP_K) >= 0.95);
+        assertEquals(DOCUMENTS, store.stats().nodes());
+    }
+
+    @Test
+    void concurrentInsertsKeepEveryNodeReachable() throws Exception {
+        HnswVectorStore store = newStore();
+        List<Document> documents = documents(0, DOCUMENTS);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> batches = new ArrayList<>();
+            for (int from = 0; from < DOCUMENTS; from += 20) {
+                List<Document> batch = documents.subList(from, from + 20);
+                batches.add(executor.submit(() -> store.add(batch)));
+            }
+            for (Future<?> batch : batches) {
+                batch.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(DOCUMENTS, store.stats().nodes());
+        int self = 0;
+        for (int i = 0; i < DOCUMENTS; i++) {
+            List<Document> nearest = store.similaritySearch(vectors.get(i), 1, -1);
+            if (!nearest.isEmpty() && nearest.get(0).getId().equals("doc-" + i)) {
+                self++;
+            }
+        }
+        assertTrue(self >= DOCUMENTS * 0.99, "nœuds retrouvés " + self);
+        assertTrue(recall(store, Set.of()) >= 0.95);
+    }
+
+    @Test
+    void neverReturnsDeletedDocumentsAndCompactsTombstones() throws InterruptedException {
+        HnswVectorStore store = newStore();
+        store.add(documents(0, DOCUMENTS));
+        Set<String> deleted = new HashSet<>();
+        for (int i = 0; i < DOCUMENTS; i += 2) {
+            deleted.add("doc-" + i);
+        }
+        store.delete(List.copyOf(deleted));
+
+        // Recherches servies pendant le compactage automatique lancé par la suppression
+        assertEquals(DOCUMENTS / 2, store.stats().nodes());
+        assertTrue(recall(store, deleted) >= 0.9);
+
+        awaitCompaction(store);
+
+        assertEquals(0, store.stats().deleted());
+        assertEquals(DOCUMENTS / 2, store.stats().nodes());
+        assertTrue(recall(store, deleted) >= 0.95);
+    }
+
+    @Test
+    void replacesDocumentWithSameId() {
+        HnswVectorStore store = newStore();
+        store.add(documents(0, 100));
+        float[] moved = randomVector();
+        store.add(List.of(document("doc-0", moved)));
+
+        assertEquals(100, store.stats().nodes());
+        assertEquals(1, store.stats().deleted());
+        assertEquals("doc-0", store.similaritySearch(moved, 1, -1).get(0).getId());
+        assertEquals(1, store.similaritySearch(moved, 100, -1).stream()
+            .filter(document -> document.getId().equals("doc-0"))
+            .count());
+    }
+
+    @Test
+    void storesCopiesWithoutTouchingCallerDocuments() {
+        HnswVectorStore store = newStore();
+        List<Document> documents = documents(0, 100);
+        Document unembedded = new Document("sans-vecteur", "sans-vecteur", Map.of("source", "a.txt"));
+        store.add(List.of(unembedded));
+        store.add(documents);
+
+        assertTrue(unembedded.getEmbedding() == null || unembedded.getEmbedding().length == 0);
+        Document stored = store.similaritySearch(vectors.get(0), 1, -1).get(0);
+        assertEquals("doc-0", stored.getId());
+        assertNotSame(documents.get(0), stored);
+        assertTrue(stored.getEmbedding() == null || stored.getEmbedding().length == 0);
+        assertEquals(101L * DIMENSIONS * Float.BYTES, store.stats().vectorBytes());
+    }
+
+    @Test
+    void updatesMetadataInPlaceAndAcrossCompaction() throws InterruptedException {
+        HnswVectorStore store = newStore();
+        store.add(documents(0, 200));
+
+        assertEquals(1, store.updateMetadata(List.of(new Document("doc-3", "doc-3", Map.of("chunk_index", 9)))));
+        assertEquals(Map.of("chunk_index", 9), store.similaritySearch(vectors.get(3), 1, -1).get(0).getMetadata());
+        assertEquals(200, store.stats().nodes());
+        assertEquals(0, store.stats().deleted());
+
+        store.delete(List.of("doc-0"));
+        awaitCompaction(store);
+        assertEquals(Map.of("chunk_index", 9), store.similaritySearch(vectors.get(3), 1, -1).get(0).getMetadata());
+    }
+
+    // Attend la fin du compactage automatique puis en relance un, borné pour ne pas bloquer le build
+    private static void awaitCompaction(HnswVectorStore store) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (!store.compact()) {
+            assertTrue(System.nanoTime() < deadline, "compactage toujours en cours après 30 s");
+            Thread.sleep(10);
+        }
+    }
+
+    // Rappel@k moyen sur des requêtes aléatoires ; les documents exclus ne doivent jamais sortir
+    private double recall(HnswVectorStore store, Set<String> excluded) {
+        Random queries = new Random(7);
+        int found = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                query[i] = (float) queries.nextGaussian();
+            }
+            Set<String> expected = new HashSet<>(exactTopK(query, excluded));
+            List<Document> results = store.similaritySearch(query, TOP_K, -1);
+            for (Document result : results) {
+                assertFalse(excluded.contains(result.getId()), "document supprimé retourné : " + result.getId());
+                if (expected.contains(result.getId())) {
+                    found++;
+                }
+            }
+        }
+        return (double) found / (QUERIES * TOP_K);
+    }
+
+    private List<String> exactTopK(float[] query, Set<String> excluded) {
+        return IntStream.range(0, vectors.size())
+            .filter(i -> !excluded.contains("doc-" + i))
+            .boxed()
+            .sorted(Comparator.comparingDouble((Integer i) -> cosine(query, vectors.get(i))).reversed())
+            .limit(TOP_K)
+            .map(i -> "doc-" + i)
+            .toList();
+    }
+
+    private HnswVectorStore newStore() {
+        return new HnswVectorStore(new FakeEmbeddingModel(DIMENSIONS), 16, 100, 64);
+    }
+
+    private List<Document> documents(int from, int to) {
+        List<Document> documents = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            float[] vector = randomVector();
+            vectors.add(vector);
+            documents.add(document("doc-" + i, vector.clone()));
+        }
+        return documents;
+    }
+
+    private float[] randomVector() {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, normA = 0, normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            normA += (double) a[i] * a[i];
+            normB += (double) b[i] * b[i];
+        }
+        return dot / Math.sqrt(normA * normB);
+    }
+
+    private static Document document(String id, float[] embedding) {
+        Document document = new Document(id, id, Map.of());
+        document.setEmbedding(embedding);
+        return document;
+    }
+}
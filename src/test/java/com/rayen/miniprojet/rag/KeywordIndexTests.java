@@ -0,0 +1,84 @@
+package com.rayen.miniprojet.rag;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Classement BM25 de l'index mots-clés
+ */
+class KeywordIndexTests {
+
+    @Test
+    void ranksHigherTermFrequencyFirst() {
+        KeywordIndex index = KeywordIndex.build(List.of(
+            chunk("a", "retour produit colis expedition carton"),
+            chunk("b", "retour retour retour produit colis"),
+            chunk("c", "facture paiement virement banque carte")));
+
+        assertEquals(List.of("b", "a"), ids(index.search("retour", 10)));
+    }
+
+    @Test
+    void weightsRareTermsAboveCommonOnes() {
+        KeywordIndex index = KeywordIndex.build(List.of(
+            chunk("commun", "livraison livraison colis"),
+            chunk("rare", "livraison garantie colis"),
+            chunk("autre", "facture paiement colis")));
+
+        assertEquals(List.of("rare", "commun"), ids(index.search("livraison garantie", 10)));
+    }
+
+    @Test
+    void favoursShorterChunksAtEqualFrequency() {
+        KeywordIndex index = KeywordIndex.build(List.of(
+            chunk("long", "garantie colis facture paiement expedition carton"),
+            chunk("court", "garantie colis")));
+
+        assertEquals(List.of("court", "long"), ids(index.search("garantie", 10)));
+    }
+
+    @Test
+    void matchesAccentsAndPluralsLikeTheAnalyzer() {
+        KeywordIndex index = KeywordIndex.build(List.of(
+            chunk("a", "Délai de retour : 30 jours"),
+            chunk("b", "Paiement par carte")));
+
+        assertEquals(List.of("a"), ids(index.search("delais des retours", 10)));
+    }
+
+    @Test
+    void keepsOnlyTopKResults() {
+        KeywordIndex index = KeywordIndex.build(List.of(
+            chunk("a", "stock stock stock"),
+            chunk("b", "stock stock entrepot"),
+            chunk("c", "stock entrepot region"),
+            chunk("d", "entrepot region nord")));
+
+        assertEquals(List.of("a", "b"), ids(index.search("stock", 2)));
+        assertTrue(index.search("stock", 0).isEmpty());
+    }
+
+    @Test
+    void returnsNothingForUnknownOrStopWordQueries() {
+        KeywordIndex index = KeywordIndex.build(List.of(chunk("a", "retour produit colis")));
+
+        assertTrue(index.search("inconnu", 10).isEmpty());
+        assertTrue(index.search("le la les de", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+        assertTrue(KeywordIndex.empty().search("retour", 10).isEmpty());
+    }
+
+    private static Document chunk(String id, String content) {
+        return new Document(id, content, Map.of());
+    }
+
+    private static List<String> ids(List<Document> documents) {
+        return documents.stream().map(Document::getId).toList();
+    }
+}
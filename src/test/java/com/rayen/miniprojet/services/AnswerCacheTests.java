@@ -0,0 +1,78 @@
+package com.rayen.miniprojet.services;
+
+import com.rayen.miniprojet.entities.ProductChangedEvent;
+import com.rayen.miniprojet.rag.CorpusRegistry;
+import com.rayen.miniprojet.support.FakeEmbeddingModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Invalidation du cache de réponses quand le corpus ou les produits changent, y compris pendant une génération
+ */
+class AnswerCacheTests {
+
+    private final CorpusRegistry registry = new CorpusRegistry();
+    private final AnswerCache cache = new AnswerCache(new FakeEmbeddingModel(64), registry, true, 100, 3600, 15, 0.92);
+
+    @Test
+    void servesStoredAnswerWhileCorpusIsUnchanged() {
+        AnswerCache.Lookup miss = cache.lookup("Délai de retour ?", "DOCUMENT");
+        assertFalse(miss.hit());
+        cache.store(miss, "DOCUMENT", "30 jours");
+
+        assertEquals("30 jours", cache.lookup("delai de retour", "DOCUMENT").answer());
+    }
+
+    @Test
+    void clearsAnswersOfPreviousGeneration() {
+        cache.store(cache.lookup("Délai de retour ?", "DOCUMENT"), "DOCUMENT", "30 jours");
+        assertEquals(1, cache.size());
+
+        registry.publish(List.of(), Map.of(), true);
+
+        assertFalse(cache.lookup("Délai de retour ?", "DOCUMENT").hit());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void dropsAnswerGeneratedBeforeAPublication() {
+        AnswerCache.Lookup lookup = cache.lookup("Délai de retour ?", "DOCUMENT");
+
+        // Ré-indexation pendant la génération : la réponse vient de l'ancien corpus
+        registry.publish(List.of(), Map.of(), true);
+        cache.store(lookup, "DOCUMENT", "30 jours");
+
+        assertEquals(0, cache.size());
+        assertFalse(cache.lookup("Délai de retour ?", "DOCUMENT").hit());
+    }
+
+    @Test
+    void dropsStockAnswerReadBeforeAProductChange() {
+        AnswerCache.Lookup stale = cache.lookup("Stock du PRD-001", "STOCK");
+        cache.onProductChanged(new ProductChangedEvent("PRD-001"));
+        cache.store(stale, "STOCK", "12 unités");
+
+        assertEquals(0, cache.size());
+
+        AnswerCache.Lookup fresh = cache.lookup("Stock du PRD-001", "STOCK");
+        cache.store(fresh, "STOCK", "11 unités");
+        assertEquals("11 unités", cache.lookup("Stock du PRD-001", "STOCK").answer());
+    }
+
+    @Test
+    void keepsAnswersStoredAfterTheNewGeneration() {
+        cache.store(cache.lookup("Délai de retour ?", "DOCUMENT"), "DOCUMENT", "30 jours");
+        registry.publish(List.of(), Map.of(), true);
+
+        cache.store(cache.lookup("Délai de retour ?", "DOCUMENT"), "DOCUMENT", "14 jours");
+
+        assertTrue(cache.lookup("Délai de retour ?", "DOCUMENT").hit());
+        assertEquals("14 jours", cache.lookup("Délai de retour ?", "DOCUMENT").answer());
+    }
+}
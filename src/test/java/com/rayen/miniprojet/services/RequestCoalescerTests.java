@@ -0,0 +1,235 @@
+package com.rayen.miniprojet.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Regroupement "single flight" : une seule génération par question identique en cours
+ */
+class RequestCoalescerTests {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RequestCoalescer coalescer = new RequestCoalescer(meterRegistry, true);
+
+    @Test
+    void sharesOneCallBetweenIdenticalQuestionsInFlight() throws Exception {
+        AtomicInteger generations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<RequestCoalescer.Shared<String>> leader = executor.submit(() ->
+                coalescer.call("DOCUMENT", "Délai de retour ?", () -> {
+                    generations.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "30 jours";
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Même question normalisée : rattachée au calcul du leader
+            Future<RequestCoalescer.Shared<String>> follower = executor.submit(() ->
+                coalescer.call("DOCUMENT", "delai de retour", () -> {
+                    generations.incrementAndGet();
+                    return "autre";
+                }));
+            awaitCoalesced("call");
+            assertEquals(1.0, meterRegistry.get("chat.inflight").gauge().value(), 0);
+            release.countDown();
+
+            assertEquals(new RequestCoalescer.Shared<>("30 jours", false), leader.get(5, TimeUnit.SECONDS));
+            assertEquals(new RequestCoalescer.Shared<>("30 jours", true), follower.get(5, TimeUnit.SECONDS));
+            assertEquals(1, generations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0.0, meterRegistry.get("chat.inflight").gauge().value(), 0);
+    }
+
+    @Test
+    void runsAgainOnceTheFirstCallIsDone() {
+        AtomicInteger generations = new AtomicInteger();
+
+        coalescer.call("DOCUMENT", "Délai de retour ?", () -> "réponse " + generations.incrementAndGet());
+        RequestCoalescer.Shared<String> second =
+            coalescer.call("DOCUMENT", "Délai de retour ?", () -> "réponse " + generations.incrementAndGet());
+
+        assertEquals(new RequestCoalescer.Shared<>("réponse 2", false), second);
+        assertNull(meterRegistry.find("chat.coalesced").counter());
+    }
+
+    @Test
+    void propagatesFailureToFollowersAndForgetsIt() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("modèle indisponible");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> leader = executor.submit(() -> coalescer.call("DOCUMENT", "stock", () -> {
+                started.countDown();
+                await(release);
+                throw failure;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<RequestCoalescer.Shared<String>> follower =
+                executor.submit(() -> coalescer.call("DOCUMENT", "stock", () -> "jamais appelé"));
+            awaitCoalesced("call");
+            release.countDown();
+
+            assertSame(failure, assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+            assertSame(failure, assertThrows(Exception.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("ok", coalescer.call("DOCUMENT", "stock", () -> "ok").value());
+    }
+
+    @Test
+    void keepsCsvQuestionsDistinctByExactText() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<RequestCoalescer.Shared<String>> first = executor.submit(() ->
+                coalescer.call("CSV", "a;b\n1;2", () -> {
+                    started.countDown();
+                    await(release);
+                    return "minuscules";
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // Les données CSV ne sont pas normalisées : un autre texte est une autre question
+            RequestCoalescer.Shared<String> second = coalescer.call("CSV", "A;B\n1;2", () -> "majuscules");
+            release.countDown();
+
+            assertEquals(new RequestCoalescer.Shared<>("majuscules", false), second);
+            assertEquals(new RequestCoalescer.Shared<>("minuscules", false), first.get(5, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void replaysStreamedTokensToFollowers() {
+        AtomicInteger generations = new AtomicInteger();
+        Sinks.Many<String> tokens = Sinks.many().multicast().onBackpressureBuffer();
+
+        RequestCoalescer.Shared<Flux<String>> leader =
+            coalescer.stream("DOCUMENT", "Délai de retour ?", () -> {
+                generations.incrementAndGet();
+                return tokens.asFlux();
+            }).block();
+        List<String> leaderTokens = new ArrayList<>();
+        leader.value().subscribe(leaderTokens::add);
+        tokens.tryEmitNext("30 ");
+
+        RequestCoalescer.Shared<Flux<String>> follower =
+            coalescer.stream("DOCUMENT", "delai de retour", () -> {
+                generations.incrementAndGet();
+                return tokens.asFlux();
+            }).block();
+        List<String> followerTokens = new ArrayList<>();
+        follower.value().subscribe(followerTokens::add);
+        tokens.tryEmitNext("jours");
+        tokens.tryEmitComplete();
+
+        assertFalse(leader.follower());
+        assertTrue(follower.follower());
+        assertEquals(List.of("30 ", "jours"), leaderTokens);
+        assertEquals(List.of("30 ", "jours"), followerTokens);
+        assertEquals(1, generations.get());
+        assertEquals(1.0, meterRegistry.get("chat.coalesced").tag("mode", "stream").counter().count(), 0);
+        assertFalse(coalescer.stream("DOCUMENT", "Délai de retour ?", tokens::asFlux).block().follower());
+    }
+
+    @Test
+    void registersStreamOnlyWhenSubscribed() {
+        Mono<RequestCoalescer.Shared<Flux<String>>> abandoned =
+            coalescer.stream("DOCUMENT", "Délai de retour ?", () -> Flux.just("30 jours"));
+
+        // Jamais abonné : aucun calcul en cours n'est enregistré
+        assertEquals(0.0, meterRegistry.get("chat.inflight").gauge().value(), 0);
+
+        RequestCoalescer.Shared<Flux<String>> leader =
+            coalescer.stream("DOCUMENT", "Délai de retour ?", () -> Flux.just("30 jours")).block();
+        assertFalse(leader.follower());
+        assertEquals(List.of("30 jours"), leader.value().collectList().block());
+        assertEquals(0.0, meterRegistry.get("chat.inflight").gauge().value(), 0);
+        assertFalse(abandoned.block().follower());
+    }
+
+    @Test
+    void runsEveryRequestWhenDisabled() throws Exception {
+        RequestCoalescer disabled = new RequestCoalescer(new SimpleMeterRegistry(), false);
+        AtomicInteger generations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<RequestCoalescer.Shared<String>> first = executor.submit(() ->
+                disabled.call("DOCUMENT", "stock", () -> {
+                    generations.incrementAndGet();
+                    started.countDown();
+                    await(release);
+                    return "premier";
+                }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            RequestCoalescer.Shared<String> second = disabled.call("DOCUMENT", "stock", () -> {
+                generations.incrementAndGet();
+                return "second";
+            });
+            release.countDown();
+
+            assertEquals(new RequestCoalescer.Shared<>("second", false), second);
+            assertEquals(new RequestCoalescer.Shared<>("premier", false), first.get(5, TimeUnit.SECONDS));
+            assertEquals(2, generations.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void awaitCoalesced(String mode) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Counter counter;
+        while ((counter = meterRegistry.find("chat.coalesced").tag("mode", mode).counter()) == null
+                || counter.count() == 0) {
+            assertTrue(System.nanoTime() < deadline, "aucune requête rattachée");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
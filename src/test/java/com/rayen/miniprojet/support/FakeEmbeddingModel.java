@@ -0,0 +1,81 @@
+package com.rayen.miniprojet.support;
+
+import com.rayen.miniprojet.rag.FrenchAnalyzer;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.Embedding;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * EmbeddingModel déterministe et hors ligne : chaque terme (analyse française) est haché
+ * sur quelques dimensions signées, puis le vecteur est normalisé.
+ *
+ * Deux textes partageant des termes ont donc une similarité cosinus positive, ce qui
+ * suffit à exercer les seuils et le classement sans Ollama.
+ */
+public class FakeEmbeddingModel implements EmbeddingModel {
+
+    // Dimensions touchées par terme : limite les collisions sans densifier les vecteurs
+    private static final int PROJECTIONS_PER_TERM = 4;
+
+    private final int dimensions;
+
+    public FakeEmbeddingModel(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        List<Embedding> embeddings = new ArrayList<>();
+        List<String> texts = request.getInstructions();
+        for (int i = 0; i < texts.size(); i++) {
+            embeddings.add(new Embedding(vector(texts.get(i)), i));
+        }
+        return new EmbeddingResponse(embeddings);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return vector(document.getContent());
+    }
+
+    @Override
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public float[] vector(String text) {
+        float[] vector = new float[dimensions];
+        for (String term : FrenchAnalyzer.tokenize(text)) {
+            long hash = mix(term.hashCode());
+            for (int p = 0; p < PROJECTIONS_PER_TERM; p++) {
+                int index = (int) Long.remainderUnsigned(hash, dimensions);
+                vector[index] += (hash & (1L << 62)) == 0 ? 1f : -1f;
+                hash = mix(hash);
+            }
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        if (norm > 0) {
+            float scale = (float) (1 / Math.sqrt(norm));
+            for (int i = 0; i < dimensions; i++) {
+                vector[i] *= scale;
+            }
+        }
+        return vector;
+    }
+
+    // splitmix64 : dispersion stable entre JVM (pas de graine aléatoire)
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}